@@ -4,12 +4,17 @@ import dbg.ScriptableDebugger;
 public class Main {
     public static void main(String[] args) {
         System.out.println("Starting Scriptable Debugger...");
-        System.out.println("Commands: step, step-over, continue, frame, method, stack,");
+        System.out.println("Commands: step [<n> [trace]], step-over [<n> [trace]], step-until <condition> [trace],");
+        System.out.println("          continue, frame, method, stack [<from> [<count>]],");
         System.out.println("          temporaries, arguments, receiver, sender,");
         System.out.println("          receiver-variables, breakpoints,");
-        System.out.println("          print-var <name>, break <file> <line>,");
+        System.out.println("          print-var <name>[[from..to]], break <file> <line> [if <condition>],");
         System.out.println("          break-once <file> <line>, break-on-count <file> <line> <n>,");
-        System.out.println("          break-before-method-call <method>");
+        System.out.println("          break-every <file> <line> <n>, break-before-method-call [Class.]method[(types)],");
+        System.out.println("          logpoint <file> <line> \"<message with {expr}>\" [max/s],");
+        System.out.println("          log-output console | file <path>, program-output console | file <path>,");
+        System.out.println("          threads, thread <id>, suspend-mode all|thread,");
+        System.out.println("          step-filter [add|remove <pattern> | trivial on|off]");
         System.out.println();
 
         ScriptableDebugger debugger = new ScriptableDebugger();
@@ -2,7 +2,7 @@ package dbg;
 
 import com.sun.jdi.*;
 
-import java.util.List;
+import java.util.Map;
 
 // Affiche les arguments de la methode courante
 public class ArgumentsCommand implements Command {
@@ -16,14 +16,17 @@ public class ArgumentsCommand implements Command {
     @Override
     public Object execute() {
         try {
-            StackFrame frame = debugger.getCurrentFrame();
+            FrameSnapshot snapshot = debugger.getSnapshot();
 
-            if (frame == null) {
+            if (snapshot == null) {
                 return "No frame available";
             }
 
-            Method method = frame.location().method();
-            List<LocalVariable> arguments = method.arguments();
+            if (!snapshot.hasDebugInfo()) {
+                return "Error: No debug info (compile with -g)";
+            }
+
+            Map<String, Value> arguments = snapshot.getArguments();
 
             if (arguments.isEmpty()) {
                 return "No arguments";
@@ -32,11 +35,11 @@ public class ArgumentsCommand implements Command {
             StringBuilder sb = new StringBuilder();
             sb.append("Arguments:\n");
 
-            for (LocalVariable arg : arguments) {
-                Value value = frame.getValue(arg);
+            for (Map.Entry<String, Value> entry : arguments.entrySet()) {
+                Value value = entry.getValue();
                 sb.append(String.format("  %s -> %s\n",
-                        arg.name(),
-                        value != null ? value.toString() : "null"
+                        entry.getKey(),
+                        ValueRenderers.getDefault().format(value)
                 ));
             }
 
@@ -44,8 +47,6 @@ public class ArgumentsCommand implements Command {
 
         } catch (IncompatibleThreadStateException e) {
             return "Error: Thread not suspended";
-        } catch (AbsentInformationException e) {
-            return "Error: No debug info (compile with -g)";
         }
     }
 }
@@ -0,0 +1,193 @@
+package dbg;
+
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.ArrayType;
+import com.sun.jdi.PrimitiveValue;
+import com.sun.jdi.StringReference;
+import com.sun.jdi.Value;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Lecture d'un grand tableau par morceaux (ArrayReference.getValues(index, length))
+// - seuls les morceaux regardes sont transferes, jamais le tableau entier
+// - les tableaux de primitives sont decodes dans un tableau Java du meme type (double[], int[]...)
+//   au lieu de garder un objet Value par element
+// - prefetch() charge le morceau suivant en arriere-plan pendant qu'on lit le courant
+// Valable pour un seul arret (le programme peut modifier le tableau apres une reprise)
+public class ArrayPager {
+
+    public static final int CHUNK_SIZE = 1000;
+    private static final int MAX_CHUNKS = 32;  // Morceaux gardes en memoire (les plus recents)
+
+    private static final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "array-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ArrayReference array;
+    private final int length;
+    private final String componentType;
+    private final char kind;  // Premier caractere de la signature du type des elements (I, D, L, [...)
+
+    // Index du morceau -> double[], int[]... ou List<Value> pour les references
+    private final Map<Integer, Object> chunks = new LinkedHashMap<Integer, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object> eldest) {
+            return size() > MAX_CHUNKS;
+        }
+    };
+
+    public ArrayPager(ArrayReference array) {
+        this.array = array;
+        this.length = array.length();
+        ArrayType type = (ArrayType) array.referenceType();
+        this.componentType = type.componentTypeName();
+        this.kind = type.componentSignature().charAt(0);
+    }
+
+    public ArrayReference getArray() {
+        return array;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public String getComponentType() {
+        return componentType;
+    }
+
+    public boolean isPrimitive() {
+        return kind != 'L' && kind != '[';
+    }
+
+    public int chunkCount() {
+        return (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    // Element d'un tableau d'objets (null pour un tableau de primitives)
+    public Value getValue(int index) {
+        if (isPrimitive()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        List<Value> values = (List<Value>) chunk(index / CHUNK_SIZE);
+        return values.get(index % CHUNK_SIZE);
+    }
+
+    // Texte d'un element, lu dans le morceau qui le contient
+    public String format(int index) {
+        Object buffer = chunk(index / CHUNK_SIZE);
+        int offset = index % CHUNK_SIZE;
+        switch (kind) {
+            case 'Z': return String.valueOf(((boolean[]) buffer)[offset]);
+            case 'B': return String.valueOf(((byte[]) buffer)[offset]);
+            case 'C': return "'" + ((char[]) buffer)[offset] + "'";
+            case 'S': return String.valueOf(((short[]) buffer)[offset]);
+            case 'I': return String.valueOf(((int[]) buffer)[offset]);
+            case 'J': return String.valueOf(((long[]) buffer)[offset]);
+            case 'F': return String.valueOf(((float[]) buffer)[offset]);
+            case 'D': return String.valueOf(((double[]) buffer)[offset]);
+            default:
+                Value value = getValue(index);
+                if (value == null) {
+                    return "null";
+                }
+                if (value instanceof StringReference) {
+                    return StringPreview.of((StringReference) value, StringPreview.DEFAULT_LIMIT).toDisplay();
+                }
+                return value.toString();
+        }
+    }
+
+    // Morceau numero chunkIndex (lu au premier besoin, un seul aller-retour JDWP)
+    public Object chunk(int chunkIndex) {
+        synchronized (chunks) {
+            Object buffer = chunks.get(chunkIndex);
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+
+        // Lecture hors du verrou : un prefetch en cours ne bloque pas les autres morceaux
+        int start = chunkIndex * CHUNK_SIZE;
+        int count = Math.min(CHUNK_SIZE, length - start);
+        Object buffer = decode(array.getValues(start, count));
+        synchronized (chunks) {
+            chunks.put(chunkIndex, buffer);
+        }
+        return buffer;
+    }
+
+    // Charge un morceau en arriere-plan (ex: le suivant de celui qu'on affiche)
+    public void prefetch(int chunkIndex) {
+        if (chunkIndex < 0 || chunkIndex >= chunkCount()) {
+            return;
+        }
+        synchronized (chunks) {
+            if (chunks.containsKey(chunkIndex)) {
+                return;
+            }
+        }
+        prefetcher.submit(() -> {
+            try {
+                chunk(chunkIndex);
+            } catch (Exception e) {
+                // Programme reparti ou termine : le morceau sera relu (ou pas) a la demande
+            }
+        });
+    }
+
+    private Object decode(List<Value> values) {
+        int n = values.size();
+        switch (kind) {
+            case 'Z': {
+                boolean[] buffer = new boolean[n];
+                for (int i = 0; i < n; i++) buffer[i] = ((PrimitiveValue) values.get(i)).booleanValue();
+                return buffer;
+            }
+            case 'B': {
+                byte[] buffer = new byte[n];
+                for (int i = 0; i < n; i++) buffer[i] = ((PrimitiveValue) values.get(i)).byteValue();
+                return buffer;
+            }
+            case 'C': {
+                char[] buffer = new char[n];
+                for (int i = 0; i < n; i++) buffer[i] = ((PrimitiveValue) values.get(i)).charValue();
+                return buffer;
+            }
+            case 'S': {
+                short[] buffer = new short[n];
+                for (int i = 0; i < n; i++) buffer[i] = ((PrimitiveValue) values.get(i)).shortValue();
+                return buffer;
+            }
+            case 'I': {
+                int[] buffer = new int[n];
+                for (int i = 0; i < n; i++) buffer[i] = ((PrimitiveValue) values.get(i)).intValue();
+                return buffer;
+            }
+            case 'J': {
+                long[] buffer = new long[n];
+                for (int i = 0; i < n; i++) buffer[i] = ((PrimitiveValue) values.get(i)).longValue();
+                return buffer;
+            }
+            case 'F': {
+                float[] buffer = new float[n];
+                for (int i = 0; i < n; i++) buffer[i] = ((PrimitiveValue) values.get(i)).floatValue();
+                return buffer;
+            }
+            case 'D': {
+                double[] buffer = new double[n];
+                for (int i = 0; i < n; i++) buffer[i] = ((PrimitiveValue) values.get(i)).doubleValue();
+                return buffer;
+            }
+            default:
+                return values;
+        }
+    }
+}
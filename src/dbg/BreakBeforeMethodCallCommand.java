@@ -1,6 +1,6 @@
 package dbg;
 
-// Place un breakpoint au debut d'une methode
+// Place un breakpoint au debut d'une methode (toutes ses surcharges, ou une signature precise)
 public class BreakBeforeMethodCallCommand implements Command {
 
     private ScriptableDebugger debugger;
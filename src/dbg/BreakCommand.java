@@ -1,23 +1,30 @@
 package dbg;
 
-// Place un breakpoint a une ligne donnee
+// Place un breakpoint a une ligne donnee (eventuellement conditionnel)
 public class BreakCommand implements Command {
 
     private ScriptableDebugger debugger;
     private String filename;
     private int lineNumber;
+    private Expression condition;  // null = breakpoint simple
 
     public BreakCommand(ScriptableDebugger debugger, String filename, int lineNumber) {
+        this(debugger, filename, lineNumber, null);
+    }
+
+    public BreakCommand(ScriptableDebugger debugger, String filename, int lineNumber, Expression condition) {
         this.debugger = debugger;
         this.filename = filename;
         this.lineNumber = lineNumber;
+        this.condition = condition;
     }
 
     @Override
     public Object execute() {
-        boolean success = debugger.addBreakpoint(filename, lineNumber);
+        boolean success = debugger.addBreakpoint(filename, lineNumber, condition);
         if (success) {
-            return "Breakpoint set at " + filename + ":" + lineNumber;
+            String suffix = condition != null ? " if " + condition.getSource() : "";
+            return "Breakpoint set at " + filename + ":" + lineNumber + suffix;
         } else {
             return "Failed to set breakpoint at " + filename + ":" + lineNumber;
         }
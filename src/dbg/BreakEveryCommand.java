@@ -0,0 +1,27 @@
+package dbg;
+
+// Place un breakpoint d'echantillonnage qui s'arrete 1 passage sur N
+public class BreakEveryCommand implements Command {
+
+    private ScriptableDebugger debugger;
+    private String filename;
+    private int lineNumber;
+    private int n;
+
+    public BreakEveryCommand(ScriptableDebugger debugger, String filename, int lineNumber, int n) {
+        this.debugger = debugger;
+        this.filename = filename;
+        this.lineNumber = lineNumber;
+        this.n = n;
+    }
+
+    @Override
+    public Object execute() {
+        boolean success = debugger.addBreakpointEvery(filename, lineNumber, n);
+        if (success) {
+            return "Sampling breakpoint set at " + filename + ":" + lineNumber + " (stops every " + n + " hits)";
+        } else {
+            return "Failed to set breakpoint at " + filename + ":" + lineNumber;
+        }
+    }
+}
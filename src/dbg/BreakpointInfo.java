@@ -1,24 +1,50 @@
 package dbg;
 
-import com.sun.jdi.request.BreakpointRequest;
+import com.sun.jdi.request.EventRequest;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 // Stocke les infos d'un breakpoint pour le suivi
 public class BreakpointInfo {
 
     private String filename;
     private int lineNumber;
-    private BreakpointRequest request;
+    private final int requestedLine;  // Ligne demandee, avant deplacement sur une ligne executable
+    private List<EventRequest> requests;  // BreakpointRequest(s) ou MethodEntryRequest, lue par les deux threads
     private boolean isOnce;       // Se supprime apres 1 passage
     private int targetCount;      // Nombre de passages avant activation
-    private int currentCount;     // Compteur actuel
+    private int everyNth;         // Echantillonnage : s'arrete 1 passage sur N
+    private boolean countReached; // Le compteur a ete atteint (breakpoint normal ensuite)
+    private int currentCount;     // Nombre d'arrets signales par la VM
+    private Expression condition; // S'arrete seulement si la condition est vraie (null = toujours)
+    private long evaluations;     // Nombre d'evaluations de la condition
+    private long evaluationNanos; // Temps total passe a evaluer la condition
+    private int suspendPolicy;    // Politique de suspension des requests (EventRequest.SUSPEND_*)
+    private LogTemplate logTemplate; // Logpoint : message a produire au lieu de s'arreter
+    private int maxPerSecond;     // Logpoint : nombre max de messages par seconde
+    private long windowStart;     // Debut de la fenetre courante (ms)
+    private int windowCount;      // Messages produits dans la fenetre courante
+    private long logged;          // Messages produits
+    private long suppressed;      // Messages ignores par la limite de debit
+    private MethodPattern method; // Breakpoint de methode (null = breakpoint de ligne)
+    private boolean countedHere;  // Plusieurs requests : count/every comptes par le debugger, pas par la VM
+    private long hits;            // Passages comptes par le debugger (countedHere)
 
-    public BreakpointInfo(String filename, int lineNumber, BreakpointRequest request) {
+    public BreakpointInfo(String filename, int lineNumber, EventRequest request) {
         this.filename = filename;
         this.lineNumber = lineNumber;
-        this.request = request;
+        this.requestedLine = lineNumber;
+        this.requests = new CopyOnWriteArrayList<>();
+        if (request != null) {
+            this.requests.add(request);
+        }
         this.isOnce = false;
         this.targetCount = 0;
+        this.everyNth = 0;
+        this.countReached = false;
         this.currentCount = 0;
+        this.suspendPolicy = EventRequest.SUSPEND_ALL;
     }
 
     public String getFilename() {
@@ -29,8 +55,48 @@ public class BreakpointInfo {
         return lineNumber;
     }
 
-    public BreakpointRequest getRequest() {
-        return request;
+    public int getRequestedLine() {
+        return requestedLine;
+    }
+
+    // Ligne reellement utilisee (la ligne demandee peut ne pas contenir de code)
+    public void setLineNumber(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    // Premiere request (null si le breakpoint est en attente)
+    public EventRequest getRequest() {
+        return requests.isEmpty() ? null : requests.get(0);
+    }
+
+    // Une request par methode contenant la ligne (lambdas, classes anonymes...)
+    public List<EventRequest> getRequests() {
+        return requests;
+    }
+
+    public void addRequest(EventRequest request) {
+        requests.add(request);
+    }
+
+    public void clearRequests() {
+        requests.clear();
+    }
+
+    // Vrai si la classe n'est pas encore chargee (request pas encore creee)
+    public boolean isPending() {
+        return requests.isEmpty() && (lineNumber >= 0 || method != null);
+    }
+
+    public boolean isMethodBreakpoint() {
+        return method != null;
+    }
+
+    public MethodPattern getMethodPattern() {
+        return method;
+    }
+
+    public void setMethodPattern(MethodPattern method) {
+        this.method = method;
     }
 
     public boolean isOnce() {
@@ -49,30 +115,157 @@ public class BreakpointInfo {
         this.targetCount = count;
     }
 
-    public int getCurrentCount() {
-        return currentCount;
+    public int getEveryNth() {
+        return everyNth;
     }
 
-    public void incrementCount() {
-        this.currentCount++;
+    public void setEveryNth(int n) {
+        this.everyNth = n;
     }
 
-    // Retourne true si le breakpoint doit s'activer
-    public boolean shouldActivate() {
-        if (targetCount > 0) {
-            return currentCount >= targetCount;
+    public boolean isCountReached() {
+        return countReached;
+    }
+
+    public void setCountReached(boolean reached) {
+        this.countReached = reached;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
+    // Enregistre le cout d'une evaluation de la condition
+    public void recordEvaluation(long nanos) {
+        evaluations++;
+        evaluationNanos += nanos;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    // Temps moyen d'une evaluation en microsecondes
+    public double getAverageEvaluationMicros() {
+        return evaluations == 0 ? 0 : evaluationNanos / 1000.0 / evaluations;
+    }
+
+    public int getSuspendPolicy() {
+        return suspendPolicy;
+    }
+
+    public void setSuspendPolicy(int suspendPolicy) {
+        this.suspendPolicy = suspendPolicy;
+    }
+
+    public boolean isLogpoint() {
+        return logTemplate != null;
+    }
+
+    public LogTemplate getLogTemplate() {
+        return logTemplate;
+    }
+
+    // Transforme le breakpoint en logpoint : il ne suspend que le thread de l'evenement
+    public void setLogTemplate(LogTemplate logTemplate, int maxPerSecond) {
+        this.logTemplate = logTemplate;
+        this.maxPerSecond = maxPerSecond;
+        this.suspendPolicy = EventRequest.SUSPEND_EVENT_THREAD;
+    }
+
+    // Limite de debit d'un logpoint (fenetre d'une seconde)
+    // Retourne false si le message doit etre ignore
+    public boolean tryLog(long nowMillis) {
+        if (nowMillis - windowStart >= 1000) {
+            windowStart = nowMillis;
+            windowCount = 0;
+        }
+        if (windowCount >= maxPerSecond) {
+            suppressed++;
+            return false;
+        }
+        windowCount++;
+        logged++;
+        return true;
+    }
+
+    // Filtre de comptage a poser sur la request (0 = aucun)
+    // Les passages ignores sont comptes par la VM cible, sans aller-retour JDWP
+    public int getCountFilter() {
+        if (isOnce && condition != null) {
+            return 0;  // Le premier passage ou la condition est vraie n'est pas forcement le premier
+        }
+        if (isOnce) {
+            return 1;  // Le premier passage sur n'importe quelle location supprime le breakpoint
+        }
+        if (countedHere) {
+            return 0;
+        }
+        if (everyNth > 0) {
+            return everyNth;
+        }
+        if (targetCount > 0 && !countReached) {
+            return targetCount;
+        }
+        return 0;
+    }
+
+    // Une ligne a plusieurs locations (boucle, lambda...) ou plusieurs methodes visees : un count filter
+    // par request compterait chaque location a part, le compte de la ligne entiere est fait dans onHit
+    public void setCountedHere(boolean countedHere) {
+        this.countedHere = countedHere;
+    }
+
+    public boolean isCountedHere() {
+        return countedHere;
+    }
+
+    // Compte un passage (countedHere) : vrai s'il faut s'arreter
+    public boolean countHit() {
+        hits++;
+        if (everyNth > 0) {
+            return hits % everyNth == 0;
+        }
+        if (targetCount > 0 && !countReached) {
+            return hits >= targetCount;
         }
         return true;
     }
 
+    public int getCurrentCount() {
+        return currentCount;
+    }
+
+    public void incrementCount() {
+        this.currentCount++;
+    }
+
     @Override
     public String toString() {
-        String info = filename + ":" + lineNumber;
+        String info = method != null ? method + " (method)" : filename + ":" + lineNumber;
+        if (isPending()) {
+            info += " (pending)";
+        }
         if (isOnce) {
             info += " (once)";
         }
         if (targetCount > 0) {
-            info += " (count: " + currentCount + "/" + targetCount + ")";
+            info += countReached ? " (count: " + targetCount + " reached)" : " (count: waiting for hit " + targetCount + ")";
+        }
+        if (everyNth > 0) {
+            info += " (every " + everyNth + " hits, " + currentCount + " stops)";
+        }
+        if (condition != null) {
+            info += String.format(" if %s [%d evals, avg %.1f us]",
+                    condition.getSource(), evaluations, getAverageEvaluationMicros());
+        }
+        if (logTemplate != null) {
+            info += String.format(" log \"%s\" [%d logged, %d suppressed, max %d/s]",
+                    logTemplate.getSource(), logged, suppressed, maxPerSecond);
         }
         return info;
     }
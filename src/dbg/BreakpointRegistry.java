@@ -0,0 +1,383 @@
+package dbg;
+
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.event.LocatableEvent;
+import com.sun.jdi.event.MethodEntryEvent;
+import com.sun.jdi.request.BreakpointRequest;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+import com.sun.jdi.request.MethodEntryRequest;
+import com.sun.jdi.request.StepRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Registre des breakpoints partage par le debugger CLI et le debugger GUI
+// - indexe par EventRequest : retrouver le breakpoint d'un evenement coute O(1)
+// - thread-safe : le thread Swing et le thread JDI peuvent le modifier en meme temps ;
+//   pose, suppression et re-pose d'un breakpoint se font sous le verrou du registre (un remove
+//   ne peut pas se glisser au milieu d'un resolvePending ou d'un rearm), les lectures sans verrou
+// - gere la duree de vie des requests : un breakpoint supprime libere sa request
+// - garde les breakpoints en attente (classe pas encore chargee) jusqu'au ClassPrepareEvent
+public class BreakpointRegistry {
+
+    private final EventRequestManager requestManager;
+    private final ClassIndex classIndex;  // Tables de lignes des classes
+    private final Map<EventRequest, BreakpointInfo> byRequest;
+    private final List<BreakpointInfo> breakpoints;  // Ordre de creation (pour l'affichage)
+    private volatile LogBuffer logOutput;  // Sortie des logpoints
+
+    public BreakpointRegistry(EventRequestManager requestManager, ClassIndex classIndex) {
+        this.requestManager = requestManager;
+        this.classIndex = classIndex;
+        this.byRequest = new ConcurrentHashMap<>();
+        this.breakpoints = new CopyOnWriteArrayList<>();
+    }
+
+    // Enregistre un breakpoint (et sa request si elle existe deja)
+    public synchronized void add(BreakpointInfo info) {
+        for (EventRequest request : info.getRequests()) {
+            byRequest.put(request, info);
+        }
+        breakpoints.add(info);
+    }
+
+    // Pose les requests d'un breakpoint de ligne dans une classe chargee et l'enregistre
+    // - une ligne sans code est deplacee sur la ligne executable la plus proche
+    // - une request par methode contenant la ligne (lambdas, classes anonymes...)
+    // Le count filter eventuel est pose avant enable() : la VM cible compte elle-meme
+    public synchronized boolean arm(BreakpointInfo info, ReferenceType type) throws AbsentInformationException {
+        if (info.isMethodBreakpoint()) {
+            return armMethod(info, type);
+        }
+
+        LineTable table = classIndex.lineTable(type);
+        int line = table.nearestLine(info.getRequestedLine());
+        if (line < 0) {
+            return false;
+        }
+
+        // Ligne affichee : celle de la premiere classe posee (un nom simple peut viser plusieurs classes,
+        // chacune garde sa propre ligne executable la plus proche)
+        if (info.getRequests().isEmpty()) {
+            info.setLineNumber(line);
+        }
+        List<Location> locations = table.locationsOf(line);
+        if (locations.size() > 1) {
+            info.setCountedHere(true);
+        }
+        for (Location location : locations) {
+            BreakpointRequest request = requestManager.createBreakpointRequest(location);
+            request.setSuspendPolicy(info.getSuspendPolicy());
+            if (info.getCountFilter() > 0) {
+                request.addCountFilter(info.getCountFilter());
+            }
+            request.enable();
+
+            info.addRequest(request);
+            byRequest.put(request, info);
+        }
+        if (!breakpoints.contains(info)) {
+            breakpoints.add(info);
+        }
+        return true;
+    }
+
+    // Pose un breakpoint de methode : un BreakpointRequest sur la premiere location de
+    // chaque methode correspondante (surcharges comprises), comme un breakpoint de ligne
+    // Les methodes sans bytecode (native, abstract) passent par une MethodEntryRequest
+    // limitee a la classe, le nom est verifie dans onHit
+    private boolean armMethod(BreakpointInfo info, ReferenceType type) {
+        MethodPattern pattern = info.getMethodPattern();
+        boolean needsEntryRequest = false;
+        boolean found = false;
+
+        // Plusieurs methodes visees (surcharges) : le compte se fait dans onHit
+        int targets = 0;
+        for (Method method : type.methods()) {
+            if (pattern.matches(method)) {
+                targets++;
+            }
+        }
+        if (targets > 1) {
+            info.setCountedHere(true);
+        }
+
+        for (Method method : type.methods()) {
+            if (!pattern.matches(method)) {
+                continue;
+            }
+            found = true;
+            Location location = method.location();
+            if (location == null || method.isNative() || method.isAbstract()) {
+                needsEntryRequest = true;
+                continue;
+            }
+
+            BreakpointRequest request = requestManager.createBreakpointRequest(location);
+            request.setSuspendPolicy(info.getSuspendPolicy());
+            if (info.getCountFilter() > 0) {
+                request.addCountFilter(info.getCountFilter());
+            }
+            request.enable();
+
+            info.addRequest(request);
+            byRequest.put(request, info);
+        }
+
+        if (needsEntryRequest) {
+            MethodEntryRequest request = requestManager.createMethodEntryRequest();
+            request.addClassFilter(type);  // La classe et ses sous-classes (implementations)
+            request.setSuspendPolicy(info.getSuspendPolicy());
+            request.enable();
+
+            info.addRequest(request);
+            byRequest.put(request, info);
+        }
+
+        if (found && !breakpoints.contains(info)) {
+            breakpoints.add(info);
+        }
+        return found;
+    }
+
+    // Vrai si l'entree dans cette methode doit arreter un breakpoint de methode en repli
+    private boolean isEntryTarget(BreakpointInfo bp, Method method) {
+        if (!bp.getMethodPattern().matches(method)) {
+            return false;
+        }
+        for (EventRequest request : bp.getRequests()) {
+            if (request instanceof BreakpointRequest
+                    && ((BreakpointRequest) request).location().method().equals(method)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Enregistre un breakpoint dont la classe n'est pas encore chargee
+    public synchronized void addPending(BreakpointInfo info) {
+        breakpoints.add(info);
+    }
+
+    // Pose les breakpoints en attente qui visent cette classe (appele au chargement)
+    // Retourne les breakpoints effectivement poses
+    public synchronized List<BreakpointInfo> resolvePending(ReferenceType type) {
+        List<BreakpointInfo> resolved = new ArrayList<>();
+        for (BreakpointInfo info : breakpoints) {
+            if (info.isPending() && matchesClass(info.getFilename(), type.name())) {
+                try {
+                    if (arm(info, type)) {
+                        resolved.add(info);
+                    }
+                } catch (AbsentInformationException e) {
+                    // Pas d'info de debug : le breakpoint reste en attente
+                }
+            }
+        }
+        return resolved;
+    }
+
+    // Vrai s'il reste des breakpoints en attente pour ce nom de classe
+    public boolean hasPending(String filename) {
+        for (BreakpointInfo info : breakpoints) {
+            if (info.isPending() && info.getFilename().equals(filename)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Retrouve le breakpoint associe a une request (null si inconnu)
+    public BreakpointInfo find(EventRequest request) {
+        if (request == null) {
+            return null;
+        }
+        return byRequest.get(request);
+    }
+
+    // Retrouve un breakpoint par classe et ligne (null si aucun)
+    public BreakpointInfo find(String className, int lineNumber) {
+        for (BreakpointInfo info : breakpoints) {
+            if (info.getLineNumber() == lineNumber && matchesClass(info.getFilename(), className)) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    // Supprime un breakpoint et detruit ses requests dans la VM
+    public synchronized boolean remove(BreakpointInfo info) {
+        if (!breakpoints.remove(info)) {
+            return false;
+        }
+        for (EventRequest request : info.getRequests()) {
+            deleteRequest(request);
+        }
+        info.clearRequests();
+        return true;
+    }
+
+    // Appele a chaque evenement de breakpoint : retourne true si on doit s'arreter
+    // Les passages ignores (once, count, every) sont filtres par la VM cible grace
+    // au count filter : ici on ne voit que les passages ou il faut s'arreter
+    // (sauf ligne a plusieurs locations : chaque passage arrive ici et est compte par countHit)
+    public boolean onHit(LocatableEvent event) {
+        BreakpointInfo bp = find(event.request());
+        if (bp == null) {
+            return true;  // Breakpoint normal (non enregistre)
+        }
+
+        // Repli MethodEntryRequest : on ne garde que les entrees dans la methode visee
+        // (et pas celles deja couvertes par un BreakpointRequest, ex: surcharge concrete)
+        if (event instanceof MethodEntryEvent && !isEntryTarget(bp, ((MethodEntryEvent) event).method())) {
+            return false;
+        }
+
+        // Plusieurs locations : le compte de la ligne entiere est fait ici (pas de count filter)
+        if (bp.isCountedHere() && !bp.countHit()) {
+            return false;
+        }
+
+        // Condition : evaluee a chaque passage, on repart tout de suite si elle est fausse
+        if (bp.getCondition() != null && !testCondition(bp, event)) {
+            return false;
+        }
+
+        // Logpoint : on produit le message et on repart sans s'arreter
+        if (bp.isLogpoint()) {
+            log(bp, event);
+            return false;
+        }
+
+        bp.incrementCount();
+
+        // Breakpoint once - le count filter l'a expire, on le supprime
+        if (bp.isOnce()) {
+            remove(bp);
+            return true;
+        }
+
+        // Echantillonnage - re-active la meme request, la VM repart de N
+        if (bp.getEveryNth() > 0) {
+            event.request().disable();
+            event.request().enable();
+            return true;
+        }
+
+        // Compteur atteint - devient un breakpoint normal (s'arrete a chaque passage)
+        if (bp.getTargetCount() > 0 && !bp.isCountReached()) {
+            bp.setCountReached(true);
+            rearm(bp);
+        }
+
+        return true;
+    }
+
+    // Formate le message d'un logpoint et le depose dans le tampon asynchrone
+    // Un logpoint n'arrete jamais le programme : une erreur JDI perd seulement le message
+    private void log(BreakpointInfo bp, LocatableEvent event) {
+        if (logOutput == null || !bp.tryLog(System.currentTimeMillis())) {
+            return;
+        }
+        try {
+            String message = bp.getLogTemplate().format(event.thread().frame(0));
+            logOutput.offer("[" + bp.getFilename() + ":" + bp.getLineNumber() + "] " + message);
+        } catch (IncompatibleThreadStateException | RuntimeException e) {
+            // Thread deja repris, frame invalide... : message perdu
+        }
+    }
+
+    public void setLogOutput(LogBuffer logOutput) {
+        this.logOutput = logOutput;
+    }
+
+    // Evalue la condition d'un breakpoint dans la frame courante et mesure son cout
+    // Une condition qui ne peut pas etre evaluee arrete le programme (avec un message)
+    // RuntimeException : erreurs d'evaluation, mais aussi erreurs JDI (objet collecte, frame invalide...)
+    // qui ne doivent pas remonter jusqu'a la boucle d'evenements
+    private boolean testCondition(BreakpointInfo bp, LocatableEvent event) {
+        long start = System.nanoTime();
+        try {
+            return bp.getCondition().test(event.thread().frame(0));
+        } catch (IncompatibleThreadStateException | RuntimeException e) {
+            System.out.println("Condition error (" + bp.getCondition() + "): " + Expression.describeError(e));
+            return true;
+        } finally {
+            bp.recordEvaluation(System.nanoTime() - start);
+        }
+    }
+
+    // Cree des requests neuves aux memes endroits (un count filter ne peut pas etre retire)
+    private synchronized void rearm(BreakpointInfo bp) {
+        if (!breakpoints.contains(bp)) {
+            return;  // Supprime entre-temps par l'autre thread
+        }
+        List<EventRequest> old = new ArrayList<>(bp.getRequests());
+        bp.clearRequests();
+        for (EventRequest request : old) {
+            if (!(request instanceof BreakpointRequest)) {
+                bp.addRequest(request);  // MethodEntryRequest : pas de count filter
+                continue;
+            }
+            BreakpointRequest fresh = requestManager.createBreakpointRequest(((BreakpointRequest) request).location());
+            fresh.setSuspendPolicy(request.suspendPolicy());
+            if (bp.getCountFilter() > 0) {
+                fresh.addCountFilter(bp.getCountFilter());
+            }
+            fresh.enable();
+
+            deleteRequest(request);
+            bp.addRequest(fresh);
+            byRequest.put(fresh, bp);
+        }
+    }
+
+    // Supprime les step requests d'un thread (desactivees ou non) pour ne pas
+    // les accumuler dans l'EventRequestManager
+    public void deleteStepRequests(ThreadReference thread) {
+        List<StepRequest> requests = new ArrayList<>();
+        for (StepRequest request : requestManager.stepRequests()) {
+            if (request.thread().equals(thread)) {
+                requests.add(request);
+            }
+        }
+        requestManager.deleteEventRequests(requests);
+    }
+
+    // Detruit une request dans la VM (ignore si deja supprimee)
+    public void deleteRequest(EventRequest request) {
+        if (request == null) {
+            return;
+        }
+        byRequest.remove(request);
+        requestManager.deleteEventRequest(request);
+    }
+
+    public List<BreakpointInfo> getAll() {
+        return Collections.unmodifiableList(breakpoints);
+    }
+
+    public int size() {
+        return breakpoints.size();
+    }
+
+    public boolean isEmpty() {
+        return breakpoints.isEmpty();
+    }
+
+    // Meme regle que pour la pose : nom complet, ou nom simple donne par l'utilisateur
+    // (un breakpoint sur a.b.Foo ne vise pas une classe Foo du paquet par defaut)
+    private boolean matchesClass(String filename, String className) {
+        return filename.equals(className) || className.endsWith("." + filename);
+    }
+}
@@ -0,0 +1,232 @@
+package dbg;
+
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lecture du bytecode d'une methode (Method.bytecodes()) et du constant pool de sa classe
+// - liste les appels (invoke*) d'une portion de code, avec la methode appelee
+// - reconnait les corps "triviaux" : uniquement des lectures/ecritures de champs,
+//   des constantes et un return (getters, setters, constructeurs qui affectent des champs)
+public class BytecodeAnalyzer {
+
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC = 0xb8;
+    public static final int INVOKEINTERFACE = 0xb9;
+    public static final int INVOKEDYNAMIC = 0xba;
+
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int WIDE = 0xc4;
+
+    // Appel trouve dans le bytecode
+    public static class Invoke {
+        public final int opcode;
+        public final String className;   // Nom Java (a.b.C), null pour invokedynamic
+        public final String name;
+        public final String signature;   // Descripteur JVM, ex: (I)Ljava/lang/String;
+
+        Invoke(int opcode, String className, String name, String signature) {
+            this.opcode = opcode;
+            this.className = className;
+            this.name = name;
+            this.signature = signature;
+        }
+
+        @Override
+        public String toString() {
+            return (className == null ? "<dynamic>" : className) + "." + name + signature;
+        }
+    }
+
+    // Appels executes par les instructions d'une ligne (toutes ses portions de code)
+    public static List<Invoke> invokesOnLine(Method method, int line, ConstantPool pool) {
+        List<Invoke> invokes = new ArrayList<>();
+        byte[] code = method.bytecodes();
+        List<Location> locations;
+        try {
+            locations = new ArrayList<>(method.allLineLocations());
+        } catch (AbsentInformationException e) {
+            return null;
+        }
+        locations.sort((a, b) -> Long.compare(a.codeIndex(), b.codeIndex()));
+
+        for (int i = 0; i < locations.size(); i++) {
+            if (locations.get(i).lineNumber() != line) {
+                continue;
+            }
+            int start = (int) locations.get(i).codeIndex();
+            int end = i + 1 < locations.size() ? (int) locations.get(i + 1).codeIndex() : code.length;
+            collectInvokes(code, start, end, pool, invokes);
+        }
+        return invokes;
+    }
+
+    // Tous les appels d'une methode
+    public static List<Invoke> invokesOf(Method method, ConstantPool pool) {
+        List<Invoke> invokes = new ArrayList<>();
+        byte[] code = method.bytecodes();
+        collectInvokes(code, 0, code.length, pool, invokes);
+        return invokes;
+    }
+
+    private static void collectInvokes(byte[] code, int start, int end, ConstantPool pool, List<Invoke> invokes) {
+        int pc = start;
+        while (pc < end && pc < code.length) {
+            int opcode = code[pc] & 0xff;
+            if (opcode >= INVOKEVIRTUAL && opcode <= INVOKEDYNAMIC) {
+                invokes.add(pool.invoke(opcode, u2(code, pc + 1)));
+            }
+            pc += instructionLength(code, pc);
+        }
+    }
+
+    // Vrai si le corps ne fait que lire/ecrire des champs et des constantes, sans branchement
+    // allowInvokes : les appels sont acceptes, l'appelant verifie ensuite les methodes appelees
+    // (super() d'un constructeur, methode cible d'un bridge)
+    public static boolean isSimpleBody(byte[] code, boolean allowInvokes) {
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc] & 0xff;
+            boolean allowed =
+                    opcode <= 0x19                          // nop, constantes, ldc, loads
+                    || (opcode >= 0x1a && opcode <= 0x2d)   // xload_n
+                    || opcode == 0x57 || opcode == 0x59     // pop, dup
+                    || (opcode >= 0xac && opcode <= 0xb1)   // xreturn, return
+                    || (opcode >= 0xb2 && opcode <= 0xb5)   // get/put static/field
+                    || opcode == 0xc0                       // checkcast
+                    || (allowInvokes && opcode >= INVOKEVIRTUAL && opcode <= INVOKEINTERFACE);
+            if (!allowed) {
+                return false;
+            }
+            pc += instructionLength(code, pc);
+        }
+        return true;
+    }
+
+    // Taille d'une instruction (opcode compris)
+    static int instructionLength(byte[] code, int pc) {
+        int opcode = code[pc] & 0xff;
+        switch (opcode) {
+            case TABLESWITCH: {
+                int base = (pc + 4) & ~3;  // Alignement sur 4 octets apres l'opcode
+                int low = s4(code, base + 4);
+                int high = s4(code, base + 8);
+                return base - pc + 12 + 4 * (high - low + 1);
+            }
+            case LOOKUPSWITCH: {
+                int base = (pc + 4) & ~3;
+                int pairs = s4(code, base + 4);
+                return base - pc + 8 + 8 * pairs;
+            }
+            case WIDE:
+                return (code[pc + 1] & 0xff) == 0x84 ? 6 : 4;
+            default:
+                break;
+        }
+
+        if (opcode == 0x10 || opcode == 0x12 || (opcode >= 0x15 && opcode <= 0x19)
+                || (opcode >= 0x36 && opcode <= 0x3a) || opcode == 0xa9 || opcode == 0xbc) {
+            return 2;
+        }
+        if (opcode == 0x11 || opcode == 0x13 || opcode == 0x14 || opcode == 0x84
+                || (opcode >= 0x99 && opcode <= 0xa8) || (opcode >= 0xb2 && opcode <= 0xb8)
+                || opcode == 0xbb || opcode == 0xbd || opcode == 0xc0 || opcode == 0xc1
+                || opcode == 0xc6 || opcode == 0xc7) {
+            return 3;
+        }
+        if (opcode == 0xc5) {
+            return 4;
+        }
+        if (opcode == INVOKEINTERFACE || opcode == INVOKEDYNAMIC || opcode == 0xc8 || opcode == 0xc9) {
+            return 5;
+        }
+        return 1;
+    }
+
+    private static int u2(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+    }
+
+    private static int s4(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16)
+                | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+    }
+
+    // Constant pool d'une classe (ReferenceType.constantPool()), decode une seule fois
+    public static class ConstantPool {
+
+        private final byte[] data;
+        private final int[] offsets;  // Position de chaque entree (index 1..count-1)
+
+        private ConstantPool(byte[] data, int count) {
+            this.data = data;
+            this.offsets = new int[count];
+
+            int pos = 0;
+            for (int i = 1; i < count; i++) {
+                offsets[i] = pos;
+                int tag = data[pos] & 0xff;
+                switch (tag) {
+                    case 1:   // Utf8
+                        pos += 3 + u2(data, pos + 1);
+                        break;
+                    case 3:   // Integer
+                    case 4:   // Float
+                    case 9:   // Fieldref
+                    case 10:  // Methodref
+                    case 11:  // InterfaceMethodref
+                    case 12:  // NameAndType
+                    case 17:  // Dynamic
+                    case 18:  // InvokeDynamic
+                        pos += 5;
+                        break;
+                    case 5:   // Long et Double occupent deux entrees
+                    case 6:
+                        pos += 9;
+                        i++;
+                        break;
+                    case 7:   // Class
+                    case 8:   // String
+                    case 16:  // MethodType
+                    case 19:  // Module
+                    case 20:  // Package
+                        pos += 3;
+                        break;
+                    case 15:  // MethodHandle
+                        pos += 4;
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown constant pool tag " + tag);
+                }
+            }
+        }
+
+        public static ConstantPool of(ReferenceType type) {
+            return new ConstantPool(type.constantPool(), type.constantPoolCount());
+        }
+
+        Invoke invoke(int opcode, int index) {
+            int pos = offsets[index];
+            if (opcode == INVOKEDYNAMIC) {
+                int nameAndType = offsets[u2(data, pos + 3)];
+                return new Invoke(opcode, null, utf8(u2(data, nameAndType + 1)), utf8(u2(data, nameAndType + 3)));
+            }
+            int classEntry = offsets[u2(data, pos + 1)];
+            int nameAndType = offsets[u2(data, pos + 3)];
+            String className = utf8(u2(data, classEntry + 1)).replace('/', '.');
+            return new Invoke(opcode, className, utf8(u2(data, nameAndType + 1)), utf8(u2(data, nameAndType + 3)));
+        }
+
+        private String utf8(int index) {
+            int pos = offsets[index];
+            return new String(data, pos + 3, u2(data, pos + 1), StandardCharsets.UTF_8);
+        }
+    }
+}
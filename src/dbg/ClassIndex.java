@@ -0,0 +1,135 @@
+package dbg;
+
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.request.ClassPrepareRequest;
+import com.sun.jdi.request.EventRequest;
+import com.sun.jdi.request.EventRequestManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Index des classes chargees dans la VM cible
+// - rempli une seule fois avec vm.allClasses() puis tenu a jour par les ClassPrepareEvent
+// - chaque classe est indexee par son nom complet et ses suffixes (dbg.Foo -> "dbg.Foo", "Foo")
+//   pour que "break Foo 12" coute une seule recherche dans une map
+// - surveille les classes pas encore chargees (breakpoints en attente)
+// - garde la table des lignes de chaque classe (construite au premier besoin)
+public class ClassIndex {
+
+    // Classes JDK non suivies (trop nombreuses) : on les cherche avec vm.classesByName
+    private static final String[] UNTRACKED = {"java.*", "javax.*", "sun.*", "jdk.*", "com.sun.*"};
+
+    private final VirtualMachine vm;
+    private final Map<String, CopyOnWriteArrayList<ReferenceType>> byName;
+    private final ClassPrepareRequest trackingRequest;
+    private final Map<String, List<ClassPrepareRequest>> watches;  // Nom attendu -> requests
+    private final Map<ReferenceType, LineTable> lineTables;
+
+    public ClassIndex(VirtualMachine vm) {
+        this.vm = vm;
+        this.byName = new ConcurrentHashMap<>();
+        this.watches = new ConcurrentHashMap<>();
+        this.lineTables = new ConcurrentHashMap<>();
+
+        // Suivi des nouvelles classes sans suspendre la VM
+        EventRequestManager erm = vm.eventRequestManager();
+        trackingRequest = erm.createClassPrepareRequest();
+        for (String pattern : UNTRACKED) {
+            trackingRequest.addClassExclusionFilter(pattern);
+        }
+        trackingRequest.setSuspendPolicy(EventRequest.SUSPEND_NONE);
+        trackingRequest.enable();
+
+        // Classes deja chargees (une seule fois)
+        for (ReferenceType type : vm.allClasses()) {
+            add(type);
+        }
+    }
+
+    // Ajoute une classe a l'index (appele sur chaque ClassPrepareEvent)
+    public void add(ReferenceType type) {
+        String name = type.name();
+        index(name, type);
+        for (int i = name.indexOf('.'); i >= 0; i = name.indexOf('.', i + 1)) {
+            index(name.substring(i + 1), type);
+        }
+    }
+
+    private void index(String key, ReferenceType type) {
+        byName.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).addIfAbsent(type);
+    }
+
+    // Classes correspondant a un nom complet ou simple (liste vide si non chargee)
+    public List<ReferenceType> find(String name) {
+        List<ReferenceType> types = byName.get(name);
+        if (types != null) {
+            return types;
+        }
+
+        // Classe non suivie (JDK) : une seule requete ciblee sur le nom complet
+        if (name.indexOf('.') > 0) {
+            List<ReferenceType> loaded = vm.classesByName(name);
+            for (ReferenceType type : loaded) {
+                add(type);
+            }
+            return loaded;
+        }
+        return Collections.emptyList();
+    }
+
+    // Premiere classe trouvee pour ce nom (null si non chargee)
+    public ReferenceType findFirst(String name) {
+        List<ReferenceType> types = find(name);
+        return types.isEmpty() ? null : types.get(0);
+    }
+
+    // Table des lignes d'une classe, construite une seule fois par classe
+    public LineTable lineTable(ReferenceType type) throws AbsentInformationException {
+        LineTable table = lineTables.get(type);
+        if (table == null) {
+            table = LineTable.build(type);
+            lineTables.put(type, table);
+        }
+        return table;
+    }
+
+    // Demande a etre prevenu quand une classe de ce nom sera chargee
+    // Le thread qui charge la classe est suspendu le temps de poser les breakpoints
+    public void watch(String name) {
+        watches.computeIfAbsent(name, n -> {
+            List<ClassPrepareRequest> requests = new ArrayList<>();
+            requests.add(createWatchRequest(n));
+            if (n.indexOf('.') < 0) {
+                requests.add(createWatchRequest("*." + n));  // Nom simple, classe dans un package
+            }
+            return requests;
+        });
+    }
+
+    // Arrete la surveillance d'un nom (plus aucun breakpoint en attente)
+    public void unwatch(String name) {
+        List<ClassPrepareRequest> requests = watches.remove(name);
+        if (requests != null) {
+            vm.eventRequestManager().deleteEventRequests(requests);
+        }
+    }
+
+    private ClassPrepareRequest createWatchRequest(String pattern) {
+        ClassPrepareRequest request = vm.eventRequestManager().createClassPrepareRequest();
+        request.addClassFilter(pattern);
+        request.setSuspendPolicy(EventRequest.SUSPEND_EVENT_THREAD);
+        request.enable();
+        return request;
+    }
+
+    // Vrai si l'evenement vient du suivi silencieux (rien a afficher)
+    public boolean isTrackingRequest(EventRequest request) {
+        return request == trackingRequest;
+    }
+}
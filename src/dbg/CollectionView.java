@@ -0,0 +1,60 @@
+package dbg;
+
+import com.sun.jdi.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Contenu logique d'une collection, lu a la demande par pages
+// (une vue n'est valable que pour l'arret ou elle a ete ouverte)
+public abstract class CollectionView {
+
+    // Element d'une liste (key null) ou entree d'une map
+    public static class Entry {
+        public final Value key;
+        public final Value value;
+
+        public Entry(Value key, Value value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // Nombre d'elements (champ size ou equivalent)
+    public abstract int size();
+
+    // Vrai si les entrees ont une cle
+    public abstract boolean isMap();
+
+    // Entrees [from, from + count[ (moins s'il n'y en a pas assez)
+    public abstract List<Entry> entries(int from, int count);
+
+    // Collection parcourue maillon par maillon (listes chainees, tables de hachage) :
+    // les entrees deja lues sont gardees, une page suivante reprend ou la precedente s'est arretee
+    public abstract static class Sequential extends CollectionView {
+
+        private final List<Entry> read = new ArrayList<>();
+        private boolean finished;
+
+        // Entree suivante du parcours, null a la fin
+        protected abstract Entry next();
+
+        @Override
+        public List<Entry> entries(int from, int count) {
+            // Garde-fou : une structure incoherente (modifiee en cours) ne doit pas boucler
+            int limit = Math.min(from + count, size());
+            while (!finished && read.size() < limit) {
+                Entry entry = next();
+                if (entry == null) {
+                    finished = true;
+                } else {
+                    read.add(entry);
+                }
+            }
+            if (from >= read.size()) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(read.subList(from, Math.min(from + count, read.size())));
+        }
+    }
+}
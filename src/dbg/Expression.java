@@ -0,0 +1,441 @@
+package dbg;
+
+import com.sun.jdi.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Expression Java simplifiee, compilee une seule fois en arbre (voir ExpressionParser)
+// Ex: "i > 1000 && name.length() == 3"
+// - les variables utilisees sont connues a la compilation : a chaque evaluation, on lit
+//   seulement celles-la, en un seul appel StackFrame.getValues (puis champs de this, statiques)
+// - pas d'invokeMethod : les methodes supportees (String.length()...) sont evaluees cote debugger
+public class Expression {
+
+    private final String source;
+    private final Node root;
+    private final Set<String> variables;  // Identifiants racines (locales, champs)
+
+    Expression(String source, Node root, Set<String> variables) {
+        this.source = source;
+        this.root = root;
+        this.variables = Collections.unmodifiableSet(variables);
+    }
+
+    // Compile une expression (IllegalArgumentException si la syntaxe est invalide)
+    public static Expression compile(String source) {
+        return new ExpressionParser(source).parse();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Set<String> getVariables() {
+        return variables;
+    }
+
+    // Evalue l'expression dans une frame (IllegalStateException si l'evaluation echoue)
+    public Object evaluate(StackFrame frame) {
+        return evaluate(fetchVariables(frame, variables));
+    }
+
+    // Evalue avec des valeurs deja lues (plusieurs expressions sur la meme frame)
+    public Object evaluate(Map<String, Value> values) {
+        return root.eval(values);
+    }
+
+    // Evalue une condition : le resultat doit etre un booleen
+    public boolean test(StackFrame frame) {
+        Object result = evaluate(frame);
+        if (!(result instanceof Boolean)) {
+            throw new IllegalStateException("condition is not a boolean: " + source);
+        }
+        return (Boolean) result;
+    }
+
+    // Message d'une erreur d'evaluation : IllegalStateException = erreur de l'expression,
+    // autre RuntimeException = erreur JDI (objet collecte, frame invalide...)
+    public static String describeError(Exception e) {
+        if (e instanceof IllegalStateException) {
+            return e.getMessage();
+        }
+        return e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+    }
+
+    // Lit en lot les valeurs des variables utilisees : locales, puis champs de this, puis statiques
+    static Map<String, Value> fetchVariables(StackFrame frame, Set<String> variables) {
+        Map<String, Value> values = new HashMap<>();
+        if (variables.isEmpty()) {
+            return values;
+        }
+
+        List<String> missing = new ArrayList<>(variables);
+        missing.remove("this");
+
+        try {
+            List<LocalVariable> locals = new ArrayList<>();
+            for (LocalVariable var : frame.visibleVariables()) {
+                if (missing.contains(var.name())) {
+                    locals.add(var);
+                }
+            }
+            if (!locals.isEmpty()) {
+                for (Map.Entry<LocalVariable, Value> entry : frame.getValues(locals).entrySet()) {
+                    values.put(entry.getKey().name(), entry.getValue());
+                    missing.remove(entry.getKey().name());
+                }
+            }
+        } catch (AbsentInformationException e) {
+            // Pas d'info de debug : on cherche seulement dans les champs
+        }
+
+        ObjectReference thisObject = frame.thisObject();
+        if (variables.contains("this")) {
+            values.put("this", thisObject);
+        }
+
+        if (!missing.isEmpty()) {
+            ReferenceType type = frame.location().declaringType();
+            List<Field> instanceFields = new ArrayList<>();
+            List<Field> staticFields = new ArrayList<>();
+            for (String name : missing) {
+                Field field = type.fieldByName(name);
+                if (field == null) {
+                    continue;
+                }
+                if (field.isStatic()) {
+                    staticFields.add(field);
+                } else if (thisObject != null) {
+                    instanceFields.add(field);
+                }
+            }
+            if (!instanceFields.isEmpty()) {
+                for (Map.Entry<Field, Value> entry : thisObject.getValues(instanceFields).entrySet()) {
+                    values.put(entry.getKey().name(), entry.getValue());
+                }
+            }
+            if (!staticFields.isEmpty()) {
+                for (Map.Entry<Field, Value> entry : type.getValues(staticFields).entrySet()) {
+                    values.put(entry.getKey().name(), entry.getValue());
+                }
+            }
+        }
+        return values;
+    }
+
+    // Convertit une valeur JDI en valeur Java (Long, Double, Boolean, Character, String)
+    // Les objets restent des ObjectReference
+    static Object toJava(Value value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BooleanValue) {
+            return ((BooleanValue) value).value();
+        }
+        if (value instanceof CharValue) {
+            return ((CharValue) value).value();
+        }
+        if (value instanceof FloatValue || value instanceof DoubleValue) {
+            return ((PrimitiveValue) value).doubleValue();
+        }
+        if (value instanceof PrimitiveValue) {
+            return ((PrimitiveValue) value).longValue();
+        }
+        if (value instanceof StringReference) {
+            return ((StringReference) value).value();
+        }
+        return value;
+    }
+
+    // Affichage d'un resultat d'evaluation
+    public static String format(Object result) {
+        if (result == null) {
+            return "null";
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    // ---------------------------------------------------------------
+    // Noeuds de l'arbre compile
+    // ---------------------------------------------------------------
+
+    interface Node {
+        Object eval(Map<String, Value> vars);
+    }
+
+    static class Literal implements Node {
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object eval(Map<String, Value> vars) {
+            return value;
+        }
+    }
+
+    static class Variable implements Node {
+        private final String name;
+
+        Variable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object eval(Map<String, Value> vars) {
+            if (!vars.containsKey(name)) {
+                throw new IllegalStateException("unknown variable: " + name);
+            }
+            return toJava(vars.get(name));
+        }
+    }
+
+    // obj.field ou tableau.length
+    static class FieldAccess implements Node {
+        private final Node target;
+        private final String name;
+
+        FieldAccess(Node target, String name) {
+            this.target = target;
+            this.name = name;
+        }
+
+        @Override
+        public Object eval(Map<String, Value> vars) {
+            Object obj = target.eval(vars);
+            if (obj instanceof ArrayReference && name.equals("length")) {
+                return (long) ((ArrayReference) obj).length();
+            }
+            if (obj instanceof ObjectReference) {
+                ObjectReference ref = (ObjectReference) obj;
+                Field field = ref.referenceType().fieldByName(name);
+                if (field != null) {
+                    return toJava(field.isStatic() ? ref.referenceType().getValue(field) : ref.getValue(field));
+                }
+            }
+            if (obj == null) {
+                throw new IllegalStateException("null reference when reading ." + name);
+            }
+            throw new IllegalStateException("no field " + name + " on " + format(obj));
+        }
+    }
+
+    // tableau[index]
+    static class ArrayAccess implements Node {
+        private final Node target;
+        private final Node index;
+
+        ArrayAccess(Node target, Node index) {
+            this.target = target;
+            this.index = index;
+        }
+
+        @Override
+        public Object eval(Map<String, Value> vars) {
+            Object array = target.eval(vars);
+            Object i = index.eval(vars);
+            if (!(array instanceof ArrayReference) || !(i instanceof Long)) {
+                throw new IllegalStateException("invalid array access");
+            }
+            // Borne verifiee ici : getValue leverait IndexOutOfBoundsException
+            ArrayReference ref = (ArrayReference) array;
+            long n = (Long) i;
+            if (n < 0 || n >= ref.length()) {
+                throw new IllegalStateException("index " + n + " out of bounds for length " + ref.length());
+            }
+            return toJava(ref.getValue((int) n));
+        }
+    }
+
+    // Methodes de String evaluees cote debugger (sans invokeMethod)
+    static class MethodCall implements Node {
+        private final Node target;
+        private final String name;
+        private final List<Node> args;
+
+        MethodCall(Node target, String name, List<Node> args) {
+            this.target = target;
+            this.name = name;
+            this.args = args;
+        }
+
+        @Override
+        public Object eval(Map<String, Value> vars) {
+            Object obj = target.eval(vars);
+            if (!(obj instanceof String)) {
+                throw new IllegalStateException("method " + name + "() only supported on strings");
+            }
+            String str = (String) obj;
+            List<Object> values = new ArrayList<>();
+            for (Node arg : args) {
+                values.add(arg.eval(vars));
+            }
+
+            switch (name + "/" + values.size()) {
+                case "length/0":
+                    return (long) str.length();
+                case "isEmpty/0":
+                    return str.isEmpty();
+                case "equals/1":
+                    return str.equals(values.get(0));
+                case "contains/1":
+                    return str.contains(String.valueOf(values.get(0)));
+                case "startsWith/1":
+                    return str.startsWith(String.valueOf(values.get(0)));
+                case "endsWith/1":
+                    return str.endsWith(String.valueOf(values.get(0)));
+                case "charAt/1": {
+                    Object index = values.get(0);
+                    if (!(index instanceof Long)) {
+                        throw new IllegalStateException("charAt() expects an int, got " + format(index));
+                    }
+                    long n = (Long) index;
+                    if (n < 0 || n >= str.length()) {
+                        throw new IllegalStateException("index " + n + " out of bounds for length " + str.length());
+                    }
+                    return str.charAt((int) n);
+                }
+                default:
+                    throw new IllegalStateException("unsupported method: " + name);
+            }
+        }
+    }
+
+    static class Unary implements Node {
+        private final String op;
+        private final Node operand;
+
+        Unary(String op, Node operand) {
+            this.op = op;
+            this.operand = operand;
+        }
+
+        @Override
+        public Object eval(Map<String, Value> vars) {
+            Object value = operand.eval(vars);
+            if (op.equals("!")) {
+                return !asBoolean(value);
+            }
+            Number n = asNumber(value);
+            return n instanceof Double ? (Object) (-n.doubleValue()) : (Object) (-n.longValue());
+        }
+    }
+
+    static class Binary implements Node {
+        private final String op;
+        private final Node left;
+        private final Node right;
+
+        Binary(String op, Node left, Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object eval(Map<String, Value> vars) {
+            // Operateurs logiques : evaluation paresseuse
+            if (op.equals("&&")) {
+                return asBoolean(left.eval(vars)) && asBoolean(right.eval(vars));
+            }
+            if (op.equals("||")) {
+                return asBoolean(left.eval(vars)) || asBoolean(right.eval(vars));
+            }
+
+            Object l = left.eval(vars);
+            Object r = right.eval(vars);
+
+            switch (op) {
+                case "==":
+                    return equalsValue(l, r);
+                case "!=":
+                    return !equalsValue(l, r);
+                case "+":
+                    if (l instanceof String || r instanceof String) {
+                        return format(l) + format(r);
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            Number a = asNumber(l);
+            Number b = asNumber(r);
+            boolean floating = a instanceof Double || b instanceof Double;
+
+            switch (op) {
+                case "<":
+                    return floating ? a.doubleValue() < b.doubleValue() : a.longValue() < b.longValue();
+                case "<=":
+                    return floating ? a.doubleValue() <= b.doubleValue() : a.longValue() <= b.longValue();
+                case ">":
+                    return floating ? a.doubleValue() > b.doubleValue() : a.longValue() > b.longValue();
+                case ">=":
+                    return floating ? a.doubleValue() >= b.doubleValue() : a.longValue() >= b.longValue();
+                case "+":
+                    return floating ? (Object) (a.doubleValue() + b.doubleValue()) : (Object) (a.longValue() + b.longValue());
+                case "-":
+                    return floating ? (Object) (a.doubleValue() - b.doubleValue()) : (Object) (a.longValue() - b.longValue());
+                case "*":
+                    return floating ? (Object) (a.doubleValue() * b.doubleValue()) : (Object) (a.longValue() * b.longValue());
+                case "/":
+                    if (!floating && b.longValue() == 0) {
+                        throw new IllegalStateException("division by zero");
+                    }
+                    return floating ? (Object) (a.doubleValue() / b.doubleValue()) : (Object) (a.longValue() / b.longValue());
+                case "%":
+                    if (!floating && b.longValue() == 0) {
+                        throw new IllegalStateException("division by zero");
+                    }
+                    return floating ? (Object) (a.doubleValue() % b.doubleValue()) : (Object) (a.longValue() % b.longValue());
+                default:
+                    throw new IllegalStateException("unknown operator: " + op);
+            }
+        }
+    }
+
+    private static boolean asBoolean(Object value) {
+        if (!(value instanceof Boolean)) {
+            throw new IllegalStateException("boolean expected, got " + format(value));
+        }
+        return (Boolean) value;
+    }
+
+    private static Number asNumber(Object value) {
+        if (value instanceof Character) {
+            return (long) (Character) value;
+        }
+        if (!(value instanceof Number)) {
+            throw new IllegalStateException("number expected, got " + format(value));
+        }
+        return (Number) value;
+    }
+
+    // == compare les valeurs pour les primitives et les chaines, l'identite pour les objets
+    private static boolean equalsValue(Object l, Object r) {
+        if (l == null || r == null) {
+            return l == r;
+        }
+        if ((l instanceof Number || l instanceof Character) && (r instanceof Number || r instanceof Character)) {
+            Number a = asNumber(l);
+            Number b = asNumber(r);
+            if (a instanceof Double || b instanceof Double) {
+                return a.doubleValue() == b.doubleValue();
+            }
+            return a.longValue() == b.longValue();
+        }
+        return l.equals(r);
+    }
+}
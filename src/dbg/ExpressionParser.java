@@ -0,0 +1,276 @@
+package dbg;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Analyseur d'expressions (descente recursive), priorites comme en Java :
+//   ||  >  &&  >  == !=  >  < <= > >=  >  + -  >  * / %  >  ! - (unaire)  >  . [] ()
+// Litteraux : entiers, decimaux, "chaines", 'c', true, false, null
+public class ExpressionParser {
+
+    private final String source;
+    private final List<String> tokens;
+    private final Set<String> variables;
+    private int pos;
+
+    public ExpressionParser(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+        this.variables = new LinkedHashSet<>();
+        this.pos = 0;
+    }
+
+    public Expression parse() {
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("empty expression");
+        }
+        Expression.Node root = parseOr();
+        if (pos < tokens.size()) {
+            throw new IllegalArgumentException("unexpected '" + tokens.get(pos) + "' in: " + source);
+        }
+        return new Expression(source, root, variables);
+    }
+
+    private Expression.Node parseOr() {
+        Expression.Node node = parseAnd();
+        while (accept("||")) {
+            node = new Expression.Binary("||", node, parseAnd());
+        }
+        return node;
+    }
+
+    private Expression.Node parseAnd() {
+        Expression.Node node = parseEquality();
+        while (accept("&&")) {
+            node = new Expression.Binary("&&", node, parseEquality());
+        }
+        return node;
+    }
+
+    private Expression.Node parseEquality() {
+        Expression.Node node = parseRelational();
+        while (peekIs("==") || peekIs("!=")) {
+            String op = next();
+            node = new Expression.Binary(op, node, parseRelational());
+        }
+        return node;
+    }
+
+    private Expression.Node parseRelational() {
+        Expression.Node node = parseAdditive();
+        while (peekIs("<") || peekIs("<=") || peekIs(">") || peekIs(">=")) {
+            String op = next();
+            node = new Expression.Binary(op, node, parseAdditive());
+        }
+        return node;
+    }
+
+    private Expression.Node parseAdditive() {
+        Expression.Node node = parseMultiplicative();
+        while (peekIs("+") || peekIs("-")) {
+            String op = next();
+            node = new Expression.Binary(op, node, parseMultiplicative());
+        }
+        return node;
+    }
+
+    private Expression.Node parseMultiplicative() {
+        Expression.Node node = parseUnary();
+        while (peekIs("*") || peekIs("/") || peekIs("%")) {
+            String op = next();
+            node = new Expression.Binary(op, node, parseUnary());
+        }
+        return node;
+    }
+
+    private Expression.Node parseUnary() {
+        if (peekIs("!") || peekIs("-")) {
+            String op = next();
+            return new Expression.Unary(op, parseUnary());
+        }
+        return parsePostfix();
+    }
+
+    // Acces aux champs, appels de methode et indexation : a.b, a.b(), a[i]
+    private Expression.Node parsePostfix() {
+        Expression.Node node = parsePrimary();
+        while (true) {
+            if (accept(".")) {
+                String name = expectIdentifier();
+                if (accept("(")) {
+                    List<Expression.Node> args = new ArrayList<>();
+                    if (!accept(")")) {
+                        do {
+                            args.add(parseOr());
+                        } while (accept(","));
+                        expect(")");
+                    }
+                    node = new Expression.MethodCall(node, name, args);
+                } else {
+                    node = new Expression.FieldAccess(node, name);
+                }
+            } else if (accept("[")) {
+                Expression.Node index = parseOr();
+                expect("]");
+                node = new Expression.ArrayAccess(node, index);
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Expression.Node parsePrimary() {
+        if (pos >= tokens.size()) {
+            throw new IllegalArgumentException("unexpected end of expression: " + source);
+        }
+        String token = next();
+
+        if (token.equals("(")) {
+            Expression.Node node = parseOr();
+            expect(")");
+            return node;
+        }
+        if (token.equals("true") || token.equals("false")) {
+            return new Expression.Literal(Boolean.parseBoolean(token));
+        }
+        if (token.equals("null")) {
+            return new Expression.Literal(null);
+        }
+        if (token.startsWith("\"")) {
+            return new Expression.Literal(token.substring(1));
+        }
+        if (token.startsWith("'")) {
+            return new Expression.Literal(token.charAt(1));
+        }
+        if (Character.isDigit(token.charAt(0))) {
+            return new Expression.Literal(parseNumber(token));
+        }
+        if (Character.isJavaIdentifierStart(token.charAt(0))) {
+            variables.add(token);
+            return new Expression.Variable(token);
+        }
+        throw new IllegalArgumentException("unexpected '" + token + "' in: " + source);
+    }
+
+    private Object parseNumber(String token) {
+        try {
+            String digits = token.replace("_", "");
+            char last = Character.toLowerCase(digits.charAt(digits.length() - 1));
+            if (last == 'l') {
+                return Long.parseLong(digits.substring(0, digits.length() - 1));
+            }
+            if (last == 'd' || last == 'f') {
+                return Double.parseDouble(digits.substring(0, digits.length() - 1));
+            }
+            if (digits.contains(".") || digits.contains("e") || digits.contains("E")) {
+                return Double.parseDouble(digits);
+            }
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number: " + token);
+        }
+    }
+
+    private boolean peekIs(String token) {
+        return pos < tokens.size() && tokens.get(pos).equals(token);
+    }
+
+    private boolean accept(String token) {
+        if (peekIs(token)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw new IllegalArgumentException("'" + token + "' expected in: " + source);
+        }
+    }
+
+    private String next() {
+        return tokens.get(pos++);
+    }
+
+    private String expectIdentifier() {
+        if (pos < tokens.size() && Character.isJavaIdentifierStart(tokens.get(pos).charAt(0))) {
+            return next();
+        }
+        throw new IllegalArgumentException("identifier expected in: " + source);
+    }
+
+    // Decoupe en lexemes ; les chaines gardent un " en tete, les caracteres un ' en tete
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"' || c == '\'') {
+                StringBuilder sb = new StringBuilder().append(c);
+                i++;
+                while (i < text.length() && text.charAt(i) != c) {
+                    char ch = text.charAt(i);
+                    if (ch == '\\' && i + 1 < text.length()) {
+                        i++;
+                        ch = unescape(text.charAt(i));
+                    }
+                    sb.append(ch);
+                    i++;
+                }
+                if (i >= text.length()) {
+                    throw new IllegalArgumentException("unterminated literal in: " + text);
+                }
+                i++;
+                if (c == '\'' && sb.length() != 2) {
+                    throw new IllegalArgumentException("invalid character literal in: " + text);
+                }
+                tokens.add(sb.toString());
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i))
+                        || text.charAt(i) == '.' || text.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i));
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < text.length() && Character.isJavaIdentifierPart(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i));
+            } else {
+                String two = i + 1 < text.length() ? text.substring(i, i + 2) : "";
+                if (two.equals("&&") || two.equals("||") || two.equals("==") || two.equals("!=")
+                        || two.equals("<=") || two.equals(">=")) {
+                    tokens.add(two);
+                    i += 2;
+                } else if ("()[].,!<>+-*/%".indexOf(c) >= 0) {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("unexpected character '" + c + "' in: " + text);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            default:
+                return c;
+        }
+    }
+}
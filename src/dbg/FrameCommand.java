@@ -1,8 +1,6 @@
 package dbg;
 
 import com.sun.jdi.IncompatibleThreadStateException;
-import com.sun.jdi.StackFrame;
-import com.sun.jdi.event.LocatableEvent;
 
 public class FrameCommand implements Command {
 
@@ -15,14 +13,9 @@ public class FrameCommand implements Command {
     @Override
     public Object execute() {
         try {
-            StackFrame frame = debugger.getCurrentFrame();
-            if (frame != null) {
-                String frameInfo = String.format("Frame: %s.%s (line %d)",
-                        frame.location().declaringType().name(),
-                        frame.location().method().name(),
-                        frame.location().lineNumber()
-                );
-                return frameInfo;
+            StopState state = debugger.getStopState();
+            if (state != null && state.getFrameCount() > 0) {
+                return "Frame: " + state.describe(0);
             } else {
                 return "No frame available";
             }
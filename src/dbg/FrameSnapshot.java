@@ -0,0 +1,166 @@
+package dbg;
+
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.Field;
+import com.sun.jdi.LocalVariable;
+import com.sun.jdi.Location;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Copie des valeurs d'une frame, lue en lot a l'arret :
+// - variables visibles (arguments compris) : un seul StackFrame.getValues
+// - champs de this : un seul ObjectReference.getValues
+// - champs statiques de la classe : un seul ReferenceType.getValues
+// Les commandes (temporaries, arguments, receiver-variables, print-var) et
+// l'inspector lisent ici au lieu de refaire un aller-retour JDWP par variable
+public class FrameSnapshot {
+
+    private final Location location;
+    private final boolean debugInfo;                   // false si compile sans -g
+    private final List<LocalVariable> variables;       // Ordre de declaration
+    private final Map<String, Value> locals;
+    private final ObjectReference thisObject;
+    private final Map<Field, Value> fields;            // Champs d'instance (herites compris)
+    private final Map<Field, Value> staticFields;
+
+    private FrameSnapshot(Location location, boolean debugInfo, List<LocalVariable> variables,
+                          Map<String, Value> locals, ObjectReference thisObject,
+                          Map<Field, Value> fields, Map<Field, Value> staticFields) {
+        this.location = location;
+        this.debugInfo = debugInfo;
+        this.variables = variables;
+        this.locals = locals;
+        this.thisObject = thisObject;
+        this.fields = fields;
+        this.staticFields = staticFields;
+    }
+
+    // Lit toute la frame (le thread doit etre suspendu)
+    public static FrameSnapshot capture(StackFrame frame) {
+        Location location = frame.location();
+
+        boolean debugInfo = true;
+        List<LocalVariable> variables;
+        Map<String, Value> locals = new LinkedHashMap<>();
+        try {
+            variables = frame.visibleVariables();
+            Map<LocalVariable, Value> values = frame.getValues(variables);
+            for (LocalVariable var : variables) {
+                locals.put(var.name(), values.get(var));
+            }
+        } catch (AbsentInformationException e) {
+            debugInfo = false;
+            variables = Collections.emptyList();
+        }
+
+        ObjectReference thisObject = frame.thisObject();
+        Map<Field, Value> fields = new LinkedHashMap<>();
+        if (thisObject != null) {
+            List<Field> instanceFields = new ArrayList<>();
+            for (Field field : thisObject.referenceType().allFields()) {
+                if (!field.isStatic()) {
+                    instanceFields.add(field);
+                }
+            }
+            fields = orderedValues(instanceFields, thisObject.getValues(instanceFields));
+        }
+
+        ReferenceType type = location.declaringType();
+        List<Field> classFields = new ArrayList<>();
+        for (Field field : type.fields()) {
+            if (field.isStatic()) {
+                classFields.add(field);
+            }
+        }
+        Map<Field, Value> staticFields = orderedValues(classFields, type.getValues(classFields));
+
+        return new FrameSnapshot(location, debugInfo, Collections.unmodifiableList(variables),
+                Collections.unmodifiableMap(locals), thisObject,
+                Collections.unmodifiableMap(fields), Collections.unmodifiableMap(staticFields));
+    }
+
+    // getValues renvoie une HashMap : on garde l'ordre de declaration pour l'affichage
+    private static Map<Field, Value> orderedValues(List<Field> order, Map<Field, Value> values) {
+        Map<Field, Value> ordered = new LinkedHashMap<>();
+        for (Field field : order) {
+            ordered.put(field, values.get(field));
+        }
+        return ordered;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    public boolean hasDebugInfo() {
+        return debugInfo;
+    }
+
+    // Variables visibles avec leur type (arguments compris)
+    public List<LocalVariable> getVariables() {
+        return variables;
+    }
+
+    // Valeurs des variables visibles, par nom
+    public Map<String, Value> getLocals() {
+        return locals;
+    }
+
+    // Valeurs des arguments seulement, dans l'ordre de la signature
+    public Map<String, Value> getArguments() {
+        Map<String, Value> arguments = new LinkedHashMap<>();
+        for (LocalVariable var : variables) {
+            if (var.isArgument()) {
+                arguments.put(var.name(), locals.get(var.name()));
+            }
+        }
+        return arguments;
+    }
+
+    public ObjectReference getThisObject() {
+        return thisObject;
+    }
+
+    public Map<Field, Value> getFields() {
+        return fields;
+    }
+
+    public Map<Field, Value> getStaticFields() {
+        return staticFields;
+    }
+
+    // Vrai si le nom designe une variable locale, un champ de this ou un champ statique
+    public boolean contains(String name) {
+        return locals.containsKey(name) || findField(fields, name) != null || findField(staticFields, name) != null;
+    }
+
+    // Valeur d'un nom (meme ordre de recherche que Java : locale, champ, statique), null si absent
+    public Value get(String name) {
+        if (locals.containsKey(name)) {
+            return locals.get(name);
+        }
+        Field field = findField(fields, name);
+        if (field != null) {
+            return fields.get(field);
+        }
+        field = findField(staticFields, name);
+        return field != null ? staticFields.get(field) : null;
+    }
+
+    private static Field findField(Map<Field, Value> values, String name) {
+        for (Field field : values.keySet()) {
+            if (field.name().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,280 @@
+package dbg;
+
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.PrimitiveValue;
+import com.sun.jdi.Value;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Vues des collections du JDK d'apres leurs champs internes (OpenJDK 8+)
+// - listes sur tableau (ArrayList, Vector, ArrayDeque) : le tableau est lu par morceaux (ArrayPager)
+// - listes chainees et tables de hachage : un getValues par maillon, dans l'ordre d'iteration
+public class JdkCollectionViews {
+
+    static void registerAll(ValueRenderers registry) {
+        registry.register("java.util.ArrayList", obj -> new ArrayListView(obj, "size"));
+        registry.register("java.util.Vector", obj -> new ArrayListView(obj, "elementCount"));
+        registry.register("java.util.ArrayDeque", ArrayDequeView::new);
+        registry.register("java.util.LinkedList", LinkedListView::new);
+        registry.register("java.util.HashMap", obj -> new HashTableView(obj, "value"));
+        registry.register("java.util.LinkedHashMap", LinkedHashMapView::new);
+        registry.register("java.util.concurrent.ConcurrentHashMap", obj -> new HashTableView(obj, "val"));
+        registry.register("java.util.HashSet", SetView::new);
+    }
+
+    // ArrayList / Vector : elementData + taille
+    static class ArrayListView extends CollectionView {
+        private final int size;
+        private final ArrayPager pager;
+
+        ArrayListView(ObjectReference list, String sizeField) {
+            Value[] values = ValueRenderers.read(list, "elementData", sizeField);
+            this.size = ((PrimitiveValue) values[1]).intValue();
+            this.pager = values[0] != null ? new ArrayPager((ArrayReference) values[0]) : null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isMap() {
+            return false;
+        }
+
+        @Override
+        public List<Entry> entries(int from, int count) {
+            List<Entry> entries = new ArrayList<>();
+            if (pager == null) {
+                return entries;
+            }
+            // size et elementData lus ensemble, mais la liste peut changer entre deux arrets (mode "thread") :
+            // on ne lit jamais au-dela du tableau
+            int end = Math.min(from + count, Math.min(size, pager.length()));
+            for (int i = from; i < end; i++) {
+                entries.add(new Entry(null, pager.getValue(i)));
+            }
+            return entries;
+        }
+    }
+
+    // ArrayDeque : tableau circulaire elements[head .. tail[
+    static class ArrayDequeView extends CollectionView {
+        private final ArrayPager pager;
+        private final int head;
+        private final int size;
+
+        ArrayDequeView(ObjectReference deque) {
+            Value[] values = ValueRenderers.read(deque, "elements", "head", "tail");
+            this.pager = new ArrayPager((ArrayReference) values[0]);
+            this.head = ((PrimitiveValue) values[1]).intValue();
+            int tail = ((PrimitiveValue) values[2]).intValue();
+            int capacity = pager.length();
+            this.size = capacity == 0 ? 0 : (tail - head + capacity) % capacity;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isMap() {
+            return false;
+        }
+
+        @Override
+        public List<Entry> entries(int from, int count) {
+            List<Entry> entries = new ArrayList<>();
+            for (int i = from; i < Math.min(from + count, size); i++) {
+                entries.add(new Entry(null, pager.getValue((head + i) % pager.length())));
+            }
+            return entries;
+        }
+    }
+
+    // LinkedList : first -> next -> ...
+    static class LinkedListView extends CollectionView.Sequential {
+        private final int size;
+        private ObjectReference node;
+
+        LinkedListView(ObjectReference list) {
+            Value[] values = ValueRenderers.read(list, "first", "size");
+            this.node = (ObjectReference) values[0];
+            this.size = ((PrimitiveValue) values[1]).intValue();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isMap() {
+            return false;
+        }
+
+        @Override
+        protected Entry next() {
+            if (node == null) {
+                return null;
+            }
+            Value[] values = ValueRenderers.read(node, "item", "next");
+            node = (ObjectReference) values[1];
+            return new Entry(null, values[0]);
+        }
+    }
+
+    // HashMap / ConcurrentHashMap : table[] de buckets, chaque bucket chaine par next
+    // (les TreeNode de HashMap gardent aussi le chainage next)
+    // ConcurrentHashMap : un TreeBin garde ses noeuds dans first, un ForwardingNode (redimensionnement
+    // en cours) renvoie aux buckets i et i + n de nextTable
+    static class HashTableView extends CollectionView.Sequential {
+        private final String valueField;
+        private final int size;
+        private final ArrayPager table;
+        private int bucket;
+        private final Deque<ObjectReference> pending = new ArrayDeque<>();  // Maillons a suivre
+
+        HashTableView(ObjectReference map, String valueField) {
+            this.valueField = valueField;
+            Value tableValue = ValueRenderers.read(map, "table")[0];
+            this.table = tableValue != null ? new ArrayPager((ArrayReference) tableValue) : null;
+            this.size = valueField.equals("val") ? concurrentSize(map)
+                    : ((PrimitiveValue) ValueRenderers.read(map, "size")[0]).intValue();
+        }
+
+        // baseCount + somme des CounterCell (meme calcul que ConcurrentHashMap.sumCount)
+        private static int concurrentSize(ObjectReference map) {
+            Value[] values = ValueRenderers.read(map, "baseCount", "counterCells");
+            long sum = ((PrimitiveValue) values[0]).longValue();
+            if (values[1] != null) {
+                ArrayPager cells = new ArrayPager((ArrayReference) values[1]);
+                for (int i = 0; i < cells.length(); i++) {
+                    ObjectReference cell = (ObjectReference) cells.getValue(i);
+                    if (cell != null) {
+                        sum += ((PrimitiveValue) ValueRenderers.read(cell, "value")[0]).longValue();
+                    }
+                }
+            }
+            return (int) Math.max(0, Math.min(sum, Integer.MAX_VALUE));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isMap() {
+            return true;
+        }
+
+        @Override
+        protected Entry next() {
+            while (true) {
+                ObjectReference node = pending.poll();
+                if (node == null) {
+                    if (table == null || bucket >= table.length()) {
+                        return null;
+                    }
+                    node = (ObjectReference) table.getValue(bucket++);
+                    if (node == null) {
+                        continue;
+                    }
+                }
+
+                String typeName = node.referenceType().name();
+                if (typeName.endsWith("$TreeBin")) {
+                    push(ValueRenderers.read(node, "first")[0]);
+                    continue;
+                }
+                if (typeName.endsWith("$ForwardingNode")) {
+                    ArrayPager next = new ArrayPager((ArrayReference) ValueRenderers.read(node, "nextTable")[0]);
+                    int index = bucket - 1;
+                    push(next.getValue(index + table.length()));
+                    push(next.getValue(index));
+                    continue;
+                }
+
+                Value[] values = ValueRenderers.read(node, "key", valueField, "next");
+                push(values[2]);
+                return new Entry(values[0], values[1]);
+            }
+        }
+
+        private void push(Value node) {
+            if (node != null) {
+                pending.push((ObjectReference) node);
+            }
+        }
+    }
+
+    // LinkedHashMap : ordre d'insertion (ou d'acces) par head -> after -> ...
+    static class LinkedHashMapView extends CollectionView.Sequential {
+        private final int size;
+        private ObjectReference entry;
+
+        LinkedHashMapView(ObjectReference map) {
+            Value[] values = ValueRenderers.read(map, "head", "size");
+            this.entry = (ObjectReference) values[0];
+            this.size = ((PrimitiveValue) values[1]).intValue();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isMap() {
+            return true;
+        }
+
+        @Override
+        protected Entry next() {
+            if (entry == null) {
+                return null;
+            }
+            Value[] values = ValueRenderers.read(entry, "key", "value", "after");
+            entry = (ObjectReference) values[2];
+            return new Entry(values[0], values[1]);
+        }
+    }
+
+    // HashSet / LinkedHashSet : les cles de la map interne
+    static class SetView extends CollectionView {
+        private final CollectionView map;
+
+        SetView(ObjectReference set) {
+            this.map = ValueRenderers.getDefault().open(ValueRenderers.read(set, "map")[0]);
+            if (map == null) {
+                throw new IllegalArgumentException("unknown map in " + set.referenceType().name());
+            }
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isMap() {
+            return false;
+        }
+
+        @Override
+        public List<Entry> entries(int from, int count) {
+            List<Entry> entries = new ArrayList<>();
+            for (Entry entry : map.entries(from, count)) {
+                entries.add(new Entry(null, entry.key));
+            }
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package dbg;
+
+import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Table des lignes executables d'une classe, construite une seule fois avec allLineLocations()
+// - lines[]   : numeros de ligne executables, tries et uniques
+// - offsets[] : pour la ligne lines[i], ses locations sont locations[offsets[i] .. offsets[i+1]-1]
+// - une location par methode qui contient la ligne (lambdas, classes anonymes...),
+//   la plus petite (premier code index) pour ne pas s'arreter plusieurs fois par passage
+// Recherche d'une ligne en O(log n) par recherche dichotomique
+public class LineTable {
+
+    private final int[] lines;
+    private final int[] offsets;
+    private final Location[] locations;
+
+    private LineTable(int[] lines, int[] offsets, Location[] locations) {
+        this.lines = lines;
+        this.offsets = offsets;
+        this.locations = locations;
+    }
+
+    public static LineTable build(ReferenceType type) throws AbsentInformationException {
+        List<Location> all = new ArrayList<>(type.allLineLocations());
+        all.sort(Comparator.comparingInt((Location l) -> l.lineNumber()).thenComparingLong(Location::codeIndex));
+
+        int[] lines = new int[all.size()];
+        int[] offsets = new int[all.size() + 1];
+        List<Location> kept = new ArrayList<>();
+        List<Method> methodsOfLine = new ArrayList<>();
+        int count = 0;
+
+        for (Location location : all) {
+            int line = location.lineNumber();
+            if (count == 0 || lines[count - 1] != line) {
+                lines[count] = line;
+                offsets[count] = kept.size();
+                count++;
+                methodsOfLine.clear();
+            }
+            // Premiere location de chaque methode pour cette ligne
+            if (!methodsOfLine.contains(location.method())) {
+                methodsOfLine.add(location.method());
+                kept.add(location);
+            }
+        }
+        offsets[count] = kept.size();
+
+        return new LineTable(Arrays.copyOf(lines, count), Arrays.copyOf(offsets, count + 1),
+                kept.toArray(new Location[0]));
+    }
+
+    // Vrai si du code est associe a cette ligne
+    public boolean isExecutable(int line) {
+        return Arrays.binarySearch(lines, line) >= 0;
+    }
+
+    // Ligne executable la plus proche (la suivante en cas d'egalite), -1 si la table est vide
+    public int nearestLine(int line) {
+        if (lines.length == 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(lines, line);
+        if (index >= 0) {
+            return line;
+        }
+
+        int next = -index - 1;  // Premiere ligne executable apres 'line'
+        if (next == lines.length) {
+            return lines[lines.length - 1];
+        }
+        if (next == 0) {
+            return lines[0];
+        }
+        int after = lines[next];
+        int before = lines[next - 1];
+        return (after - line) <= (line - before) ? after : before;
+    }
+
+    // Locations de cette ligne exacte (une par methode), liste vide si pas de code
+    public List<Location> locationsOf(int line) {
+        int index = Arrays.binarySearch(lines, line);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(locations).subList(offsets[index], offsets[index + 1]);
+    }
+
+    // Premiere location executable de la table (null si vide)
+    public Location firstLocation() {
+        return locations.length > 0 ? locations[0] : null;
+    }
+
+    // Numeros de ligne executables (copie)
+    public int[] executableLines() {
+        return lines.clone();
+    }
+}
@@ -0,0 +1,186 @@
+package dbg;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+// Tampon circulaire asynchrone pour les messages des logpoints (et la sortie du programme debugge)
+// - offer() ne bloque jamais le thread JDI : si le tampon est plein, le plus ancien message est ecrase
+// - un thread dedie vide le tampon par lots (toutes les FLUSH_INTERVAL_MS, ou plus tot s'il se remplit)
+//   et envoie chaque lot d'un coup a la sortie choisie (console, OutputPanel, fichier)
+public class LogBuffer {
+
+    private static final long FLUSH_INTERVAL_MS = 100;
+
+    private final String[] ring;
+    private final String name;  // Prefixe du message de perte et nom du thread
+    private int head;       // Index du plus ancien message
+    private int size;
+    private long dropped;   // Messages ecrases avant d'avoir ete ecrits
+    private volatile Consumer<String> sink;
+    private volatile boolean running = true;
+    private final Object writeLock = new Object();  // Garde l'ordre des lots en sortie
+    private final Thread flusher;
+
+    public LogBuffer(int capacity, Consumer<String> sink) {
+        this(capacity, sink, "logpoints");
+    }
+
+    public LogBuffer(int capacity, Consumer<String> sink, String name) {
+        this.ring = new String[capacity];
+        this.name = name;
+        this.sink = sink;
+        this.flusher = new Thread(this::flushLoop, name + "-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // Sortie console
+    public static Consumer<String> consoleSink() {
+        return text -> {
+            System.out.print(text);
+            System.out.flush();
+        };
+    }
+
+    // Sortie fichier (ajout en fin de fichier, un write par lot)
+    public static Consumer<String> fileSink(Path path) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return text -> {
+            try {
+                writer.write(text);
+                writer.flush();
+            } catch (IOException e) {
+                System.out.println("Log file write error: " + e.getMessage());
+            }
+        };
+    }
+
+    // Sortie fichier avec rotation : au-dela de maxBytes, path devient path.1 (path.1 -> path.2...)
+    // et on repart d'un fichier vide ; au plus keep anciens fichiers sont gardes
+    public static Consumer<String> rotatingFileSink(Path path, long maxBytes, int keep) throws IOException {
+        return new Consumer<String>() {
+            private BufferedWriter writer = open();
+            private long written = Files.exists(path) ? Files.size(path) : 0;
+
+            private BufferedWriter open() throws IOException {
+                return Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+
+            @Override
+            public void accept(String text) {
+                try {
+                    if (written > 0 && written + text.length() > maxBytes) {
+                        rotate();
+                    }
+                    writer.write(text);
+                    writer.flush();
+                    written += text.length();
+                } catch (IOException e) {
+                    System.out.println("Log file write error: " + e.getMessage());
+                }
+            }
+
+            private void rotate() throws IOException {
+                writer.close();
+                Files.deleteIfExists(Paths.get(path + "." + keep));
+                for (int i = keep - 1; i >= 1; i--) {
+                    Path older = Paths.get(path + "." + i);
+                    if (Files.exists(older)) {
+                        Files.move(older, Paths.get(path + "." + (i + 1)));
+                    }
+                }
+                if (keep > 0) {
+                    Files.move(path, Paths.get(path + ".1"));
+                } else {
+                    Files.delete(path);
+                }
+                writer = open();
+                written = 0;
+            }
+        };
+    }
+
+    // Change la sortie (les messages deja en attente iront a la nouvelle sortie)
+    public void setSink(Consumer<String> sink) {
+        this.sink = sink;
+    }
+
+    // Ajoute un message (appele par le thread JDI, ne bloque pas)
+    public synchronized void offer(String message) {
+        if (size == ring.length) {
+            head = (head + 1) % ring.length;
+            size--;
+            dropped++;
+        }
+        ring[(head + size) % ring.length] = message;
+        size++;
+
+        // Tampon a moitie plein : on reveille le thread d'ecriture sans attendre
+        if (size >= ring.length / 2) {
+            notifyAll();
+        }
+    }
+
+    // Ecrit immediatement tout ce qui est en attente (ex: a la fin du programme)
+    public void flush() {
+        synchronized (writeLock) {
+            String batch = drain();
+            if (batch != null) {
+                sink.accept(batch);
+            }
+        }
+    }
+
+    // Arrete le thread d'ecriture apres un dernier vidage
+    public void close() {
+        running = false;
+        synchronized (this) {
+            notifyAll();
+        }
+        flush();
+    }
+
+    private void flushLoop() {
+        while (running) {
+            synchronized (this) {
+                try {
+                    if (size < ring.length / 2) {
+                        wait(FLUSH_INTERVAL_MS);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            flush();
+        }
+    }
+
+    // Retire tous les messages en attente et les concatene (null si rien)
+    private synchronized String drain() {
+        if (size == 0 && dropped == 0) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (dropped > 0) {
+            sb.append("[").append(name).append("] ").append(dropped).append(" messages dropped (buffer full)\n");
+            dropped = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % ring.length;
+            sb.append(ring[index]).append('\n');
+            ring[index] = null;
+        }
+        head = 0;
+        size = 0;
+        return sb.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package dbg;
+
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.Value;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Message d'un logpoint : texte avec des expressions entre accolades
+// Ex: "i={i} total={this.total * 2}"
+// Les expressions sont compilees une seule fois ; a chaque passage, toutes les
+// variables utilisees sont lues ensemble (un seul StackFrame.getValues)
+public class LogTemplate {
+
+    private final String source;
+    private final List<String> texts;             // Texte avant chaque expression (+ texte final)
+    private final List<Expression> expressions;
+    private final Set<String> variables;
+
+    private LogTemplate(String source, List<String> texts, List<Expression> expressions) {
+        this.source = source;
+        this.texts = texts;
+        this.expressions = expressions;
+        this.variables = new LinkedHashSet<>();
+        for (Expression expression : expressions) {
+            variables.addAll(expression.getVariables());
+        }
+    }
+
+    // Compile un modele (IllegalArgumentException si une expression est invalide)
+    public static LogTemplate compile(String source) {
+        List<String> texts = new ArrayList<>();
+        List<Expression> expressions = new ArrayList<>();
+
+        StringBuilder text = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '{') {
+                int end = source.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("missing '}' in: " + source);
+                }
+                texts.add(text.toString());
+                text.setLength(0);
+                expressions.add(Expression.compile(source.substring(i + 1, end)));
+                i = end + 1;
+            } else {
+                text.append(c);
+                i++;
+            }
+        }
+        texts.add(text.toString());
+
+        return new LogTemplate(source, texts, expressions);
+    }
+
+    // Produit le message pour la frame courante
+    // Une expression qui echoue est remplacee par <erreur> sans bloquer le message
+    public String format(StackFrame frame) {
+        Map<String, Value> values = Expression.fetchVariables(frame, variables);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < expressions.size(); i++) {
+            sb.append(texts.get(i));
+            try {
+                sb.append(Expression.format(expressions.get(i).evaluate(values)));
+            } catch (RuntimeException e) {
+                sb.append('<').append(Expression.describeError(e)).append('>');
+            }
+        }
+        sb.append(texts.get(texts.size() - 1));
+        return sb.toString();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
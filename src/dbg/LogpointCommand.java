@@ -0,0 +1,32 @@
+package dbg;
+
+// Place un logpoint : affiche un message a chaque passage sans arreter le programme
+public class LogpointCommand implements Command {
+
+    public static final int DEFAULT_MAX_PER_SECOND = 100;
+
+    private ScriptableDebugger debugger;
+    private String filename;
+    private int lineNumber;
+    private LogTemplate template;
+    private int maxPerSecond;
+
+    public LogpointCommand(ScriptableDebugger debugger, String filename, int lineNumber,
+                           LogTemplate template, int maxPerSecond) {
+        this.debugger = debugger;
+        this.filename = filename;
+        this.lineNumber = lineNumber;
+        this.template = template;
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public Object execute() {
+        boolean success = debugger.addLogpoint(filename, lineNumber, template, maxPerSecond);
+        if (success) {
+            return "Logpoint set at " + filename + ":" + lineNumber + " (max " + maxPerSecond + "/s)";
+        } else {
+            return "Failed to set logpoint at " + filename + ":" + lineNumber;
+        }
+    }
+}
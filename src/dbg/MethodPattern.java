@@ -0,0 +1,95 @@
+package dbg;
+
+import com.sun.jdi.Method;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Methode visee par un breakpoint de methode : Classe.methode(types)
+// Ex: "power", "JDISimpleDebuggee.power", "dbg.Foo.bar(int, String)"
+// - sans classe : la classe debuggee
+// - sans parentheses : toutes les surcharges
+// - un type peut etre donne par son nom simple (String pour java.lang.String)
+public class MethodPattern {
+
+    private final String className;
+    private final String methodName;
+    private final List<String> argumentTypes;  // null = toutes les surcharges
+
+    private MethodPattern(String className, String methodName, List<String> argumentTypes) {
+        this.className = className;
+        this.methodName = methodName;
+        this.argumentTypes = argumentTypes;
+    }
+
+    // Analyse un motif (IllegalArgumentException si la syntaxe est invalide)
+    public static MethodPattern parse(String spec, String defaultClassName) {
+        String text = spec.trim();
+        List<String> argumentTypes = null;
+
+        int paren = text.indexOf('(');
+        if (paren >= 0) {
+            if (!text.endsWith(")")) {
+                throw new IllegalArgumentException("missing ')' in: " + spec);
+            }
+            argumentTypes = new ArrayList<>();
+            String args = text.substring(paren + 1, text.length() - 1).trim();
+            if (!args.isEmpty()) {
+                for (String type : args.split(",")) {
+                    argumentTypes.add(type.trim());
+                }
+            }
+            text = text.substring(0, paren).trim();
+        }
+
+        int dot = text.lastIndexOf('.');
+        String className = dot >= 0 ? text.substring(0, dot) : defaultClassName;
+        String methodName = text.substring(dot + 1);
+        if (methodName.isEmpty() || className.isEmpty()) {
+            throw new IllegalArgumentException("invalid method: " + spec);
+        }
+        return new MethodPattern(className, methodName,
+                argumentTypes == null ? null : Collections.unmodifiableList(argumentTypes));
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    // Vrai si la methode a le bon nom et (si precise) les bons types d'arguments
+    public boolean matches(Method method) {
+        if (!method.name().equals(methodName)) {
+            return false;
+        }
+        if (argumentTypes == null) {
+            return true;
+        }
+
+        List<String> actual = method.argumentTypeNames();
+        if (actual.size() != argumentTypes.size()) {
+            return false;
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            String expected = argumentTypes.get(i);
+            String type = actual.get(i);
+            if (!type.equals(expected) && !type.endsWith("." + expected) && !type.endsWith("$" + expected)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        String text = className + "." + methodName;
+        if (argumentTypes != null) {
+            text += "(" + String.join(", ", argumentTypes) + ")";
+        }
+        return text;
+    }
+}
@@ -2,9 +2,20 @@ package dbg;
 
 import com.sun.jdi.*;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 // Affiche la valeur d'une variable specifique
+// Pour un tableau, une collection ou une chaine : print-var arr[i] ou print-var arr[debut..fin] (bornes incluses),
+// seuls les morceaux qui contiennent la plage sont lus
+// Une plage trop grande est affichee par pages (MAX_ELEMENTS elements, MAX_CHARS caracteres),
+// avec la plage suivante a demander
 public class PrintVarCommand implements Command {
 
+    private static final Pattern RANGE = Pattern.compile("(\\w+)\\[(\\d+)(?:\\.\\.(\\d+))?\\]");
+    private static final int MAX_ELEMENTS = 1000;
+    private static final int MAX_CHARS = 10000;
+
     private ScriptableDebugger debugger;
     private String varName;
 
@@ -16,32 +27,21 @@ public class PrintVarCommand implements Command {
     @Override
     public Object execute() {
         try {
-            StackFrame frame = debugger.getCurrentFrame();
+            FrameSnapshot snapshot = debugger.getSnapshot();
 
-            if (frame == null) {
+            if (snapshot == null) {
                 return "No frame available";
             }
 
-            // Cherche d'abord dans les variables locales
-            try {
-                LocalVariable localVar = frame.visibleVariableByName(varName);
-                if (localVar != null) {
-                    Value value = frame.getValue(localVar);
-                    return varName + " -> " + (value != null ? value.toString() : "null");
-                }
-            } catch (AbsentInformationException e) {
-                // Pas d'info de debug, on continue
+            Matcher range = RANGE.matcher(varName);
+            if (range.matches()) {
+                return printRange(snapshot, range);
             }
 
-            // Cherche dans les champs de l'objet this
-            ObjectReference thisObject = frame.thisObject();
-            if (thisObject != null) {
-                ReferenceType type = thisObject.referenceType();
-                Field field = type.fieldByName(varName);
-                if (field != null) {
-                    Value value = thisObject.getValue(field);
-                    return varName + " -> " + (value != null ? value.toString() : "null");
-                }
+            // Variables locales, puis champs de this, puis champs statiques
+            if (snapshot.contains(varName)) {
+                Value value = snapshot.get(varName);
+                return varName + " -> " + ValueRenderers.getDefault().format(value);
             }
 
             return "Variable not found: " + varName;
@@ -50,4 +50,100 @@ public class PrintVarCommand implements Command {
             return "Error: Thread not suspended";
         }
     }
+
+    private String printRange(FrameSnapshot snapshot, Matcher range) throws IncompatibleThreadStateException {
+        String name = range.group(1);
+        if (!snapshot.contains(name)) {
+            return "Variable not found: " + name;
+        }
+        long from;
+        long to;
+        try {
+            from = Long.parseLong(range.group(2));
+            to = range.group(3) != null ? Long.parseLong(range.group(3)) : from;
+        } catch (NumberFormatException e) {
+            return "Invalid index: " + varName;
+        }
+
+        Value value = snapshot.get(name);
+        if (value instanceof StringReference) {
+            return printSubstring(name, (StringReference) value, from, to);
+        }
+        if (!(value instanceof ArrayReference)) {
+            CollectionView view = ValueRenderers.getDefault().open(value);
+            if (view == null) {
+                return name + " is not an array or a known collection";
+            }
+            return printEntries(name, (ObjectReference) value, view, from, to);
+        }
+
+        ArrayPager pager = debugger.getStopState().getArrayPager((ArrayReference) value);
+        if (from > to || from >= pager.length()) {
+            return "Index out of bounds: " + name + " has length " + pager.length();
+        }
+        long last = Math.min(to, pager.length() - 1);
+        to = Math.min(last, from + MAX_ELEMENTS - 1);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append(" : ").append(pager.getComponentType())
+          .append("[").append(pager.length()).append("]\n");
+        for (int i = (int) from; i <= to; i++) {
+            sb.append("  [").append(i).append("] = ").append(pager.format(i)).append("\n");
+        }
+        appendNextPage(sb, name, to, last);
+        // Le morceau suivant arrive pendant qu'on lit celui-ci
+        pager.prefetch((int) to / ArrayPager.CHUNK_SIZE + 1);
+        return sb.toString().trim();
+    }
+
+    // Caracteres [debut..fin] d'une chaine, sans lire le reste
+    private String printSubstring(String name, StringReference string, long from, long to) {
+        if (from > to) {
+            return "Invalid range: " + from + ".." + to;
+        }
+        StringPreview part = StringPreview.read(string, (int) Math.min(from, Integer.MAX_VALUE),
+                (int) Math.min(to - from + 1, MAX_CHARS));
+        if (from >= part.length()) {
+            return "Index out of bounds: " + name + " has length " + part.length();
+        }
+        long end = from + part.getText().length() - 1;
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append("[").append(from).append("..").append(end).append("] (length=").append(part.length())
+          .append(") -> \"").append(part.getText()).append("\"");
+        appendNextPage(sb.append("\n"), name, end, Math.min(to, part.length() - 1L));
+        return sb.toString().trim();
+    }
+
+    private String printEntries(String name, ObjectReference obj, CollectionView view, long from, long to) {
+        if (from > to || from >= view.size()) {
+            return "Index out of bounds: " + name + " has size " + view.size();
+        }
+        long last = Math.min(to, view.size() - 1);
+        to = Math.min(last, from + MAX_ELEMENTS - 1);
+
+        ValueRenderers renderers = ValueRenderers.getDefault();
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append(" : ").append(obj.referenceType().name())
+          .append(" (size=").append(view.size()).append(")\n");
+        int index = (int) from;
+        for (CollectionView.Entry entry : view.entries((int) from, (int) (to - from + 1))) {
+            sb.append("  [").append(index++).append("] ");
+            if (view.isMap()) {
+                sb.append(renderers.format(entry.key)).append(" -> ");
+            } else {
+                sb.append("= ");
+            }
+            sb.append(renderers.format(entry.value)).append("\n");
+        }
+        appendNextPage(sb, name, to, last);
+        return sb.toString().trim();
+    }
+
+    // Plage demandee plus grande qu'une page : indique la suite
+    private static void appendNextPage(StringBuilder sb, String name, long shown, long last) {
+        if (shown < last) {
+            sb.append("  ... ").append(last - shown).append(" more, use: print-var ")
+              .append(name).append("[").append(shown + 1).append("..").append(last).append("]\n");
+        }
+    }
 }
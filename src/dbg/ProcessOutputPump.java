@@ -0,0 +1,143 @@
+package dbg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+// Vide en continu stdout et stderr du programme debugge
+// - un thread par flux lit les octets des qu'ils arrivent : le tuyau ne se remplit jamais,
+//   donc le programme ne bloque pas sur un println, meme quand le debugger attend une commande
+// - chaque ligne est horodatee et rangee dans un LogBuffer (borne, ne bloque jamais)
+//   qui l'envoie par lots a la sortie choisie (console, OutputPanel, fichier)
+public class ProcessOutputPump {
+
+    private static final int READ_SIZE = 8192;
+    private static final int MAX_LINE = 8192;           // Une ligne plus longue est coupee
+    private static final int CAPACITY = 16384;          // Lignes en attente d'ecriture
+    private static final long CLOSE_TIMEOUT_MS = 2000;  // Attente de la fin des flux a la fermeture
+    private static final long FLUSH_WAIT_MS = 200;      // Attente max des lecteurs en retard a un arret
+    private static final long QUIET_MS = 20;            // Lecteurs consideres a jour sans lecture depuis
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    // Un flux du programme et sa ligne en cours (gardee par l'objet lui-meme)
+    private static class Source {
+        final String tag;
+        final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+        Source(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final LogBuffer buffer;
+    private final Charset charset = Charset.defaultCharset();
+    private final Source out = new Source("out");
+    private final Source err = new Source("err");
+    private final Thread outReader;
+    private final Thread errReader;
+    private volatile long lastRead;  // Date de la derniere lecture (System.nanoTime)
+
+    public ProcessOutputPump(Process process, Consumer<String> sink) {
+        this.buffer = new LogBuffer(CAPACITY, sink, "program");
+        this.outReader = reader(process.getInputStream(), out);
+        this.errReader = reader(process.getErrorStream(), err);
+    }
+
+    private Thread reader(InputStream in, Source source) {
+        Thread thread = new Thread(() -> pump(in, source), "program-std" + source.tag);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public void start() {
+        outReader.start();
+        errReader.start();
+    }
+
+    // Change la sortie (les lignes deja en attente iront a la nouvelle sortie)
+    public void setSink(Consumer<String> sink) {
+        buffer.flush();
+        buffer.setSink(sink);
+    }
+
+    // Ecrit tout de suite ce qui est arrive, y compris une ligne pas encore terminee
+    // (ex: un print sans \n juste avant un breakpoint, avant d'afficher le prompt)
+    public void flush() {
+        // Le programme est arrete : on laisse d'abord les lecteurs vider ce qui reste dans les tuyaux
+        // (available() n'est pas utilisable : il attend le verrou du read() bloque)
+        long start = System.nanoTime();
+        try {
+            while (System.nanoTime() - lastRead < QUIET_MS * 1_000_000
+                    && System.nanoTime() - start < FLUSH_WAIT_MS * 1_000_000) {
+                Thread.sleep(5);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        emitPending(out);
+        emitPending(err);
+        buffer.flush();
+    }
+
+    // Fin du programme : attend la fin des deux flux puis ecrit le reste
+    public void close() {
+        try {
+            outReader.join(CLOSE_TIMEOUT_MS);
+            errReader.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        emitPending(out);
+        emitPending(err);
+        buffer.close();
+    }
+
+    private void pump(InputStream in, Source source) {
+        byte[] chunk = new byte[READ_SIZE];
+        try {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                lastRead = System.nanoTime();
+                synchronized (source) {
+                    int start = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (chunk[i] == '\n') {
+                            source.pending.write(chunk, start, i - start);
+                            emit(source);
+                            start = i + 1;
+                        }
+                    }
+                    source.pending.write(chunk, start, n - start);
+                    if (source.pending.size() >= MAX_LINE) {
+                        emit(source);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Flux ferme : le programme est termine
+        }
+        emitPending(source);
+    }
+
+    private void emitPending(Source source) {
+        synchronized (source) {
+            if (source.pending.size() > 0) {
+                emit(source);
+            }
+        }
+    }
+
+    // Horodate la ligne en cours et la passe au tampon (appele avec le verrou de source)
+    private void emit(Source source) {
+        String line = new String(source.pending.toByteArray(), charset);
+        source.pending.reset();
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        buffer.offer("[" + LocalTime.now().format(TIME) + " " + source.tag + "] " + line);
+    }
+}
@@ -2,7 +2,6 @@ package dbg;
 
 import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.ObjectReference;
-import com.sun.jdi.StackFrame;
 
 // Affiche l'objet receveur (this) de la methode courante
 public class ReceiverCommand implements Command {
@@ -16,14 +15,14 @@ public class ReceiverCommand implements Command {
     @Override
     public Object execute() {
         try {
-            StackFrame frame = debugger.getCurrentFrame();
+            FrameSnapshot snapshot = debugger.getSnapshot();
 
-            if (frame == null) {
+            if (snapshot == null) {
                 return "No frame available";
             }
 
-            // thisObject() retourne null pour les methodes statiques
-            ObjectReference thisObject = frame.thisObject();
+            // thisObject est null pour les methodes statiques
+            ObjectReference thisObject = snapshot.getThisObject();
 
             if (thisObject == null) {
                 return "Receiver: null (static method)";
@@ -16,41 +16,33 @@ public class ReceiverVariablesCommand implements Command {
     @Override
     public Object execute() {
         try {
-            StackFrame frame = debugger.getCurrentFrame();
+            FrameSnapshot snapshot = debugger.getSnapshot();
 
-            if (frame == null) {
+            if (snapshot == null) {
                 return "No frame available";
             }
 
-            ObjectReference thisObject = frame.thisObject();
+            ObjectReference thisObject = snapshot.getThisObject();
 
             if (thisObject == null) {
                 return "No receiver (static method)";
             }
 
-            // Recupere tous les champs de l'objet
-            ReferenceType type = thisObject.referenceType();
-            Map<Field, Value> fieldValues = thisObject.getValues(type.allFields());
+            // Champs d'instance deja lus (un seul getValues a l'arret)
+            Map<Field, Value> fieldValues = snapshot.getFields();
 
             if (fieldValues.isEmpty()) {
                 return "No instance variables";
             }
 
             StringBuilder sb = new StringBuilder();
-            sb.append("Instance variables of ").append(type.name()).append(":\n");
+            sb.append("Instance variables of ").append(thisObject.referenceType().name()).append(":\n");
 
             for (Map.Entry<Field, Value> entry : fieldValues.entrySet()) {
-                Field field = entry.getKey();
                 Value value = entry.getValue();
-
-                // Ignore les champs statiques
-                if (field.isStatic()) {
-                    continue;
-                }
-
                 sb.append(String.format("  %s -> %s\n",
-                        field.name(),
-                        value != null ? value.toString() : "null"
+                        entry.getKey().name(),
+                        ValueRenderers.getDefault().format(value)
                 ));
             }
 
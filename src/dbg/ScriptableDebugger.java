@@ -8,17 +8,21 @@ import com.sun.jdi.connect.VMStartException;
 import com.sun.jdi.event.*;
 import com.sun.jdi.request.BreakpointRequest;
 import com.sun.jdi.request.ClassPrepareRequest;
-import com.sun.jdi.request.MethodEntryRequest;
+import com.sun.jdi.request.EventRequest;
 import com.sun.jdi.request.StepRequest;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class ScriptableDebugger {
 
@@ -27,8 +31,23 @@ public class ScriptableDebugger {
     private Event currentEvent;
     private CommandRegistry commandRegistry;
     private boolean shouldResume;
-    private List<BreakpointInfo> breakpoints;  // Liste des breakpoints poses
-    private BufferedReader inputReader;  // Lecteur d'entree unique
+    private BreakpointRegistry breakpoints;  // Breakpoints poses, indexes par request
+    private ClassIndex classIndex;  // Classes chargees, tenu a jour par les ClassPrepareEvent
+    private ClassPrepareRequest initialRequest;  // Chargement de la classe debuggee
+    private LogBuffer logOutput;  // Messages des logpoints, ecrits par lots
+    private ProcessOutputPump programOutput;  // stdout/stderr du programme, vides en continu
+    // Lignes de l'entree, lues par un thread a part : le prompt attend une commande par tranches de
+    // EVENT_POLL_MS et traite entre deux les evenements arrives (autres threads en mode "thread",
+    // logpoints, conditions fausses, step <n> en cours), qui ne restent pas suspendus pendant la saisie
+    private static final long EVENT_POLL_MS = 50;
+    private static final String END_OF_INPUT = new String("<end of input>");  // Comparee par identite
+    private final BlockingQueue<String> inputLines = new LinkedBlockingQueue<>();
+    private Map<ThreadReference, ThreadStop> stoppedThreads = new LinkedHashMap<>();  // Ordre d'arrivee
+    private int suspendPolicy = EventRequest.SUSPEND_ALL;  // SUSPEND_EVENT_THREAD en mode "thread"
+    private boolean vmDisconnected;
+    private StepFilters stepFilters;  // Exclusions et step into qui saute les methodes triviales
+    private long suspensionEpoch;     // Numero du dernier arret (voir StopState)
+    private StepRun stepRun;          // step <n> / step-until en cours, null sinon
 
     public VirtualMachine connectAndLaunchVM() throws IOException, IllegalConnectorArgumentsException, VMStartException {
         LaunchingConnector launchingConnector = Bootstrap.virtualMachineManager().defaultConnector();
@@ -45,12 +64,18 @@ public class ScriptableDebugger {
 
     public void attachTo(Class debuggeeClass) {
         this.debugClass = debuggeeClass;
-        this.breakpoints = new ArrayList<>();
-        this.inputReader = new BufferedReader(new InputStreamReader(System.in));
+        startInputReader();
         initializeCommands();
 
         try {
             vm = connectAndLaunchVM();
+            programOutput = new ProcessOutputPump(vm.process(), LogBuffer.consoleSink());
+            programOutput.start();
+            classIndex = new ClassIndex(vm);
+            breakpoints = new BreakpointRegistry(vm.eventRequestManager(), classIndex);
+            stepFilters = new StepFilters(vm, classIndex);
+            logOutput = new LogBuffer(4096, LogBuffer.consoleSink());
+            breakpoints.setLogOutput(logOutput);
             enableClassPrepareRequest(vm);
             startDebugger();
 
@@ -69,128 +94,221 @@ public class ScriptableDebugger {
     }
 
     public void startDebugger() throws VMDisconnectedException, InterruptedException, AbsentInformationException {
-        EventSet eventSet = null;
-        while ((eventSet = vm.eventQueue().remove()) != null) {
-            for (Event event : eventSet) {
-                currentEvent = event;
-                System.out.println(event.toString());
-
-                if (event instanceof ClassPrepareEvent) {
-                    setBreakPoint(debugClass.getName(), 6);
+        while (!vmDisconnected) {
+            // Aucun thread arrete : on attend le prochain evenement
+            if (stoppedThreads.isEmpty()) {
+                dispatch(vm.eventQueue().remove());
+                continue;
+            }
+
+            // Session interactive sur le thread qui a le focus
+            ThreadStop stop = focusedStop();
+            currentEvent = stop.getEvent();
+            // La sortie du programme avant l'arret s'affiche avant le prompt
+            programOutput.flush();
+
+            shouldResume = false;
+            while (!shouldResume && !vmDisconnected) {
+                readCommand();
+                // Evenements arrives pendant la saisie (autres threads en mode "thread")
+                pollEvents();
+            }
+
+            // Relance uniquement le thread qui a le focus (tous en mode "all")
+            if (shouldResume && currentEvent instanceof LocatableEvent) {
+                ThreadStop focused = stoppedThreads.remove(((LocatableEvent) currentEvent).thread());
+                if (focused != null) {
+                    focused.resume();
                 }
+            }
+        }
+    }
 
-                if (event instanceof BreakpointEvent) {
-                    BreakpointEvent bpEvent = (BreakpointEvent) event;
+    // Traite un EventSet : soit il arrete un thread (mis en file), soit il est repris tout de suite
+    private void dispatch(EventSet eventSet) throws AbsentInformationException {
+        LocatableEvent stopEvent = null;
 
-                    // Gestion des breakpoints speciaux (once, count)
-                    if (!handleSpecialBreakpoint(bpEvent)) {
-                        vm.resume();
-                        continue;
-                    }
+        StepEvent runStep = null;  // Step intermediaire d'un step <n> / step-until
 
-                    shouldResume = false;
-                    while (!shouldResume) {
-                        readCommand();
-                    }
+        for (Event event : eventSet) {
+            if (event instanceof ClassPrepareEvent) {
+                handleClassPrepare((ClassPrepareEvent) event);
+                continue;
+            }
+
+            // Gestion des breakpoints speciaux (once, count, condition) :
+            // un passage ignore repart sans rien afficher
+            if ((event instanceof BreakpointEvent || event instanceof MethodEntryEvent)
+                    && !handleSpecialBreakpoint((LocatableEvent) event)) {
+                continue;
+            }
+
+            if (event instanceof VMDisconnectEvent) {
+                if (stepRun != null) {
+                    stepRun.interrupt("program ended");
+                    System.out.println(stepRun.report());
+                    stepRun = null;
                 }
+                handleDisconnect();
+                return;
+            }
 
-                if (event instanceof StepEvent) {
-                    StepRequest stepRequest = vm.eventRequestManager().stepRequests().get(0);
-                    stepRequest.disable();
+            if (event instanceof StepEvent) {
+                // Le step est termine : on supprime la request au lieu de la garder desactivee
+                StepEvent stepEvent = (StepEvent) event;
+                int policy = event.request().suspendPolicy();
+                breakpoints.deleteRequest(event.request());
 
-                    shouldResume = false;
-                    while (!shouldResume) {
-                        readCommand();
-                    }
+                // Arrive dans un bridge ou une classe $$Lambda : on continue jusqu'au vrai code
+                if (stepFilters.shouldSkip(stepEvent.location())) {
+                    stepFilters.createStepRequest(stepEvent.thread(), StepRequest.STEP_INTO, policy);
+                    continue;
                 }
 
-                if (event instanceof MethodEntryEvent) {
-                    shouldResume = false;
-                    while (!shouldResume) {
-                        readCommand();
-                    }
+                // Step d'une suite en cours : decide apres les autres evenements du meme EventSet
+                if (stepRun != null && stepEvent.thread().equals(stepRun.getThread())) {
+                    runStep = stepEvent;
+                    continue;
                 }
+            }
 
-                if (event instanceof VMDisconnectEvent) {
-                    System.out.println("End of program");
+            System.out.println(event.toString());
 
-                    InputStreamReader reader = new InputStreamReader(vm.process().getInputStream());
-                    OutputStreamWriter writer = new OutputStreamWriter(System.out);
+            // Un seul arret par EventSet (ex: step et breakpoint sur la meme ligne)
+            if (stopEvent == null && (event instanceof BreakpointEvent || event instanceof StepEvent
+                    || event instanceof MethodEntryEvent)) {
+                stopEvent = (LocatableEvent) event;
+            }
+        }
 
-                    try {
-                        reader.transferTo(writer);
-                        writer.flush();
-                    } catch (IOException e) {
-                        System.out.println("Target VM input stream reading error.");
-                    }
+        if (stepRun != null && stopEvent != null) {
+            // Breakpoint atteint pendant la suite (dans ce step ou dans une methode passee par step-over) :
+            // on s'arrete dessus, le step en attente est annule
+            // En mode "thread", un breakpoint d'un autre thread n'a pas suspendu celui de la suite :
+            // sans step request il continue librement, on le dit dans le bilan
+            String reason = "stopped at " + stopEvent.location();
+            ThreadReference stepping = stepRun.getThread();
+            if (!stopEvent.thread().equals(stepping) && runStep == null
+                    && eventSet.suspendPolicy() != EventRequest.SUSPEND_ALL) {
+                reason += " in thread " + stopEvent.thread().name() + ", thread " + stepping.name()
+                        + " keeps running";
+            }
+            stepRun.interrupt(reason);
+            breakpoints.deleteStepRequests(stepping);
+            System.out.println(stepRun.report());
+            stepRun = null;
+        } else if (runStep != null) {
+            if (stepRun.onStep(runStep)) {
+                // Step suivant sans repasser par le prompt
+                enableStepRequest(runStep, stepRun.getStepType());
+            } else {
+                System.out.println(stepRun.report());
+                System.out.println(runStep.toString());
+                stepRun = null;
+                stopEvent = runStep;
+            }
+        }
 
-                    return;
-                }
+        if (stopEvent == null) {
+            // Une seule reprise par EventSet (et seulement les threads qu'il a suspendus)
+            eventSet.resume();
+            return;
+        }
 
-                vm.resume();
-            }
+        boolean queued = !stoppedThreads.isEmpty();
+        stoppedThreads.put(stopEvent.thread(), new ThreadStop(stopEvent, eventSet, ++suspensionEpoch));
+        if (queued) {
+            System.out.println(">>> Thread " + stopEvent.thread().name() + " [" + stopEvent.thread().uniqueID()
+                    + "] stopped at " + stopEvent.location() + " (queued, see 'threads')");
         }
     }
 
-    // Gere les breakpoints once et count, retourne true si on doit s'arreter
-    private boolean handleSpecialBreakpoint(BreakpointEvent event) {
-        for (Iterator<BreakpointInfo> it = breakpoints.iterator(); it.hasNext(); ) {
-            BreakpointInfo bp = it.next();
+    // Recupere sans attendre les evenements deja arrives
+    private void pollEvents() {
+        try {
+            EventSet eventSet;
+            while (!vmDisconnected && (eventSet = vm.eventQueue().remove(1)) != null) {
+                dispatch(eventSet);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (AbsentInformationException e) {
+            System.out.println("No debug info");
+        }
+    }
 
-            if (bp.getRequest().equals(event.request())) {
-                bp.incrementCount();
+    // Thread a inspecter : celui qui a deja le focus s'il est toujours arrete, sinon le premier en file
+    private ThreadStop focusedStop() {
+        if (currentEvent instanceof LocatableEvent) {
+            ThreadStop stop = stoppedThreads.get(((LocatableEvent) currentEvent).thread());
+            if (stop != null) {
+                return stop;
+            }
+        }
+        ThreadStop next = stoppedThreads.values().iterator().next();
+        if (currentEvent instanceof LocatableEvent) {
+            // Le thread precedent a ete relance : on passe au suivant en file
+            System.out.println(">>> Switching to thread " + next.getThread().name() + " ["
+                    + next.getThread().uniqueID() + "] at " + next.getEvent().location());
+        }
+        return next;
+    }
 
-                // Breakpoint avec compteur
-                if (!bp.shouldActivate()) {
-                    return false;  // Ne pas s'arreter
-                }
+    // Fin du programme : vide les sorties
+    private void handleDisconnect() {
+        vmDisconnected = true;
+        logOutput.close();
+        programOutput.close();
+        System.out.println("End of program");
+    }
 
-                // Breakpoint once - on le supprime
-                if (bp.isOnce()) {
-                    bp.getRequest().disable();
-                    vm.eventRequestManager().deleteEventRequest(bp.getRequest());
-                    it.remove();
-                }
+    // Une classe vient d'etre chargee : mise a jour de l'index et des breakpoints en attente
+    private void handleClassPrepare(ClassPrepareEvent event) throws AbsentInformationException {
+        ReferenceType type = event.referenceType();
+        classIndex.add(type);
 
-                return true;
+        for (BreakpointInfo info : breakpoints.resolvePending(type)) {
+            System.out.println(">>> Pending breakpoint resolved: " + info);
+            if (!breakpoints.hasPending(info.getFilename())) {
+                classIndex.unwatch(info.getFilename());
             }
         }
 
-        return true;  // Breakpoint normal
+        if (event.request() == initialRequest) {
+            System.out.println(event.toString());
+            setBreakPoint(debugClass.getName(), 6);
+        }
+    }
+
+    // Gere les breakpoints once, count et conditionnels, retourne true si on doit s'arreter
+    private boolean handleSpecialBreakpoint(LocatableEvent event) {
+        return breakpoints.onHit(event);
     }
 
     public void enableClassPrepareRequest(VirtualMachine vm) {
-        ClassPrepareRequest classPrepareRequest =
-                vm.eventRequestManager().createClassPrepareRequest();
-        classPrepareRequest.addClassFilter(debugClass.getName());
-        classPrepareRequest.enable();
+        initialRequest = vm.eventRequestManager().createClassPrepareRequest();
+        initialRequest.addClassFilter(debugClass.getName());
+        initialRequest.enable();
     }
 
     public void setBreakPoint(String className, int lineNumber) throws AbsentInformationException {
-        for (ReferenceType targetClass : vm.allClasses()) {
-            if (targetClass.name().equals(className)) {
-                Location location = targetClass.locationsOfLine(lineNumber).get(0);
+        for (ReferenceType targetClass : classIndex.find(className)) {
+            // Ligne executable la plus proche si la ligne demandee ne contient pas de code
+            LineTable table = classIndex.lineTable(targetClass);
+            for (Location location : table.locationsOf(table.nearestLine(lineNumber))) {
                 BreakpointRequest bpReq =
                         vm.eventRequestManager().createBreakpointRequest(location);
+                bpReq.setSuspendPolicy(suspendPolicy);
                 bpReq.enable();
             }
         }
     }
 
+    // Step ligne par ligne ; les classes exclues (JDK...) sont sautees par la VM cible
+    // Un step into sur une ligne qui n'appelle que des methodes triviales devient un step over
     public void enableStepRequest(LocatableEvent event, int stepType) {
-        StepRequest stepRequest =
-                vm.eventRequestManager().createStepRequest(
-                        event.thread(),
-                        StepRequest.STEP_LINE,  // LINE pour stepper ligne par ligne
-                        stepType
-                );
-        // Exclut les classes JDK pour ne pas s'arreter dans le code systeme
-        stepRequest.addClassExclusionFilter("java.*");
-        stepRequest.addClassExclusionFilter("javax.*");
-        stepRequest.addClassExclusionFilter("sun.*");
-        stepRequest.addClassExclusionFilter("jdk.*");
-        stepRequest.addClassExclusionFilter("com.sun.*");
-        stepRequest.enable();
+        int depth = stepFilters.chooseDepth(event.thread(), stepType);
+        stepFilters.createStepRequest(event.thread(), depth, suspendPolicy);
     }
 
     public void step() {
@@ -203,27 +321,70 @@ public class ScriptableDebugger {
         shouldResume = true;
     }
 
+    // step <n>, step-over <n>, step-until <condition> : la suite est faite dans dispatch()
+    // until = null pour un nombre fixe de steps
+    public String runSteps(int stepType, int count, Expression until, boolean trace) {
+        if (!(currentEvent instanceof LocatableEvent)) {
+            return "No thread to step";
+        }
+        ThreadReference thread = ((LocatableEvent) currentEvent).thread();
+        stepRun = new StepRun(thread, stepType, count, until, trace);
+        stepWithType(stepType);
+        shouldResume = true;
+        return null;
+    }
+
     private void stepWithType(int stepType) {
         if (currentEvent != null && currentEvent instanceof LocatableEvent) {
-            if (vm.eventRequestManager().stepRequests().isEmpty()) {
-                enableStepRequest((LocatableEvent) currentEvent, stepType);
-            } else {
-                StepRequest stepRequest = vm.eventRequestManager().stepRequests().get(0);
-                stepRequest.disable();
-                vm.eventRequestManager().deleteEventRequest(stepRequest);
-                enableStepRequest((LocatableEvent) currentEvent, stepType);
+            // Un seul step actif par thread : on supprime les anciens
+            breakpoints.deleteStepRequests(((LocatableEvent) currentEvent).thread());
+            enableStepRequest((LocatableEvent) currentEvent, stepType);
+        }
+    }
+
+    // Lecteur d'entree unique (thread demon) : une ligne lue = une ligne dans inputLines
+    private void startInputReader() {
+        Thread reader = new Thread(() -> {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    inputLines.add(line);
+                }
+            } catch (IOException e) {
+                System.out.println("Error reading command.");
             }
+            inputLines.add(END_OF_INPUT);
+        }, "stdin-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // Attend la prochaine ligne de l'entree ; entre deux tranches d'attente, traite les evenements
+    // deja arrives. null si le programme se termine pendant l'attente
+    private String nextInputLine() throws InterruptedException {
+        while (!vmDisconnected) {
+            String line = inputLines.poll(EVENT_POLL_MS, TimeUnit.MILLISECONDS);
+            if (line != null) {
+                return line;
+            }
+            pollEvents();
         }
+        return null;
     }
 
     public void readCommand() {
         System.out.println("\n>>> Enter command: ");
 
         try {
-            String input = inputReader.readLine();
-
-            // Gere la fin d'entree (pipe vide)
+            String input = nextInputLine();
             if (input == null) {
+                return;  // Fin du programme pendant la saisie
+            }
+
+            // Gere la fin d'entree (pipe vide) : toutes les attentes suivantes la revoient
+            if (input == END_OF_INPUT) {
+                inputLines.add(END_OF_INPUT);
                 System.out.println(">>> End of input, continuing...");
                 continueExecution();
                 return;
@@ -236,7 +397,15 @@ public class ScriptableDebugger {
 
             if (commandRegistry.hasCommand(input)) {
                 Command command = commandRegistry.getCommand(input);
-                Object result = command.execute();
+                Object result;
+                try {
+                    result = command.execute();
+                } catch (VMDisconnectedException e) {
+                    throw e;  // Fin du programme : geree par startDebugger
+                } catch (RuntimeException e) {
+                    // Lecture JDI qui echoue (objet collecte, thread reparti...) : la session continue
+                    result = "Error: " + Expression.describeError(e);
+                }
 
                 if (result != null) {
                     System.out.println(result);
@@ -245,8 +414,8 @@ public class ScriptableDebugger {
                 System.out.println(">>> Unknown command: " + input);
             }
 
-        } catch (IOException e) {
-            System.out.println("Error reading command.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -254,42 +423,106 @@ public class ScriptableDebugger {
         commandRegistry = new CommandRegistry();
 
         // Commandes de navigation
-        commandRegistry.register("step", new StepCommand(this));
-        commandRegistry.register("step-over", new StepOverCommand(this));
         commandRegistry.register("continue", new ContinueCommand(this));
 
         // Commandes d'inspection
         commandRegistry.register("frame", new FrameCommand(this));
         commandRegistry.register("method", new MethodCommand(this));
-        commandRegistry.register("stack", new StackCommand(this));
         commandRegistry.register("temporaries", new TemporariesCommand(this));
         commandRegistry.register("arguments", new ArgumentsCommand(this));
         commandRegistry.register("receiver", new ReceiverCommand(this));
         commandRegistry.register("sender", new SenderCommand(this));
         commandRegistry.register("receiver-variables", new ReceiverVariablesCommand(this));
         commandRegistry.register("breakpoints", new BreakpointsCommand(this));
+        commandRegistry.register("threads", new ThreadsCommand(this));
 
         // Commandes avec parametres
         ScriptableDebugger self = this;
 
-        // print-var <varName>
+        // print-var <varName> | print-var <tableau>[debut..fin]
         commandRegistry.registerFactory("print-var", args -> {
             if (args.length < 1) {
-                return () -> "Usage: print-var <varName>";
+                return () -> "Usage: print-var <varName> | print-var <array>[from..to]";
             }
             return new PrintVarCommand(self, args[0]);
         });
 
-        // break <filename> <line>
+        // step [<n> [trace]] | step-over [<n> [trace]]
+        commandRegistry.registerFactory("step", args -> stepFactory(self, StepRequest.STEP_INTO, args));
+        commandRegistry.registerFactory("step-over", args -> stepFactory(self, StepRequest.STEP_OVER, args));
+
+        // step-until <condition> [trace] : step over jusqu'a ce que la condition soit vraie
+        commandRegistry.registerFactory("step-until", args -> {
+            boolean trace = args.length > 1 && args[args.length - 1].equals("trace");
+            int end = trace ? args.length - 1 : args.length;
+            if (end == 0) {
+                return () -> "Usage: step-until <condition> [trace]";
+            }
+            try {
+                Expression condition = Expression.compile(String.join(" ", Arrays.copyOfRange(args, 0, end)));
+                return () -> self.runSteps(StepRequest.STEP_OVER, StepRun.MAX_UNTIL_STEPS, condition, trace);
+            } catch (IllegalArgumentException e) {
+                return () -> "Invalid condition: " + e.getMessage();
+            }
+        });
+
+        // stack | stack <from> | stack <from> <count>
+        commandRegistry.registerFactory("stack", args -> {
+            if (args.length == 0) {
+                return new StackCommand(self);
+            }
+            if (args.length > 2) {
+                return () -> "Usage: stack | stack <from> [<count>]";
+            }
+            try {
+                int from = Integer.parseInt(args[0]);
+                int count = args.length == 2 ? Integer.parseInt(args[1]) : 0;
+                if (from < 0 || (args.length == 2 && count <= 0)) {
+                    return () -> "Invalid range";
+                }
+                return args.length == 1 ? new StackCommand(self, from) : new StackCommand(self, from, count);
+            } catch (NumberFormatException e) {
+                return () -> "Invalid number";
+            }
+        });
+
+        // thread <id>
+        commandRegistry.registerFactory("thread", args -> {
+            if (args.length < 1) {
+                return () -> "Usage: thread <id>";
+            }
+            try {
+                return new ThreadCommand(self, Long.parseLong(args[0]));
+            } catch (NumberFormatException e) {
+                return () -> "Invalid thread id";
+            }
+        });
+
+        // suspend-mode all|thread
+        commandRegistry.registerFactory("suspend-mode", args -> {
+            if (args.length < 1 || (!args[0].equals("all") && !args[0].equals("thread"))) {
+                return () -> "Usage: suspend-mode all|thread";
+            }
+            return new SuspendModeCommand(self, args[0].equals("thread"));
+        });
+
+        // break <filename> <line> [if <condition>]
         commandRegistry.registerFactory("break", args -> {
-            if (args.length < 2) {
-                return () -> "Usage: break <filename> <line>";
+            if (args.length < 2 || (args.length > 2 && (!args[2].equals("if") || args.length < 4))) {
+                return () -> "Usage: break <filename> <line> [if <condition>]";
             }
             try {
                 int line = Integer.parseInt(args[1]);
-                return new BreakCommand(self, args[0], line);
+                Expression condition = null;
+                if (args.length > 3) {
+                    // La condition est compilee une seule fois, a la pose du breakpoint
+                    condition = Expression.compile(String.join(" ", Arrays.copyOfRange(args, 3, args.length)));
+                }
+                return new BreakCommand(self, args[0], line, condition);
             } catch (NumberFormatException e) {
                 return () -> "Invalid line number";
+            } catch (IllegalArgumentException e) {
+                return () -> "Invalid condition: " + e.getMessage();
             }
         });
 
@@ -314,127 +547,270 @@ public class ScriptableDebugger {
             try {
                 int line = Integer.parseInt(args[1]);
                 int count = Integer.parseInt(args[2]);
+                if (count <= 0) {
+                    return () -> "Invalid number";
+                }
                 return new BreakOnCountCommand(self, args[0], line, count);
             } catch (NumberFormatException e) {
                 return () -> "Invalid number";
             }
         });
 
-        // break-before-method-call <methodName>
+        // break-every <filename> <line> <n>
+        commandRegistry.registerFactory("break-every", args -> {
+            if (args.length < 3) {
+                return () -> "Usage: break-every <filename> <line> <n>";
+            }
+            try {
+                int line = Integer.parseInt(args[1]);
+                int n = Integer.parseInt(args[2]);
+                if (n <= 0) {
+                    return () -> "Invalid number";
+                }
+                return new BreakEveryCommand(self, args[0], line, n);
+            } catch (NumberFormatException e) {
+                return () -> "Invalid number";
+            }
+        });
+
+        // logpoint <filename> <line> "<message avec {expr}>" [max par seconde]
+        commandRegistry.registerFactory("logpoint", args -> {
+            String usage = "Usage: logpoint <filename> <line> \"<message with {expr}>\" [maxPerSecond]";
+            if (args.length < 3) {
+                return () -> usage;
+            }
+            String rest = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+            int open = rest.indexOf('"');
+            int close = rest.lastIndexOf('"');
+            if (open != 0 || close <= open) {
+                return () -> usage;
+            }
+            try {
+                int line = Integer.parseInt(args[1]);
+                LogTemplate template = LogTemplate.compile(rest.substring(open + 1, close));
+                String limit = rest.substring(close + 1).trim();
+                int maxPerSecond = limit.isEmpty() ? LogpointCommand.DEFAULT_MAX_PER_SECOND : Integer.parseInt(limit);
+                return new LogpointCommand(self, args[0], line, template, maxPerSecond);
+            } catch (NumberFormatException e) {
+                return () -> "Invalid number";
+            } catch (IllegalArgumentException e) {
+                return () -> "Invalid message: " + e.getMessage();
+            }
+        });
+
+        // log-output console | log-output file <path>
+        commandRegistry.registerFactory("log-output", args -> {
+            if (args.length == 1 && args[0].equals("console")) {
+                return () -> self.setLogOutput(LogBuffer.consoleSink(), "console");
+            }
+            if (args.length == 2 && args[0].equals("file")) {
+                return () -> {
+                    try {
+                        return self.setLogOutput(LogBuffer.fileSink(Paths.get(args[1])), args[1]);
+                    } catch (IOException e) {
+                        return "Cannot open log file: " + e.getMessage();
+                    }
+                };
+            }
+            return () -> "Usage: log-output console | log-output file <path>";
+        });
+
+        // program-output console | program-output file <path>
+        commandRegistry.registerFactory("program-output", args -> {
+            if (args.length == 1 && args[0].equals("console")) {
+                return () -> self.setProgramOutput(LogBuffer.consoleSink(), "console");
+            }
+            if (args.length == 2 && args[0].equals("file")) {
+                return () -> {
+                    try {
+                        return self.setProgramOutput(LogBuffer.fileSink(Paths.get(args[1])), args[1]);
+                    } catch (IOException e) {
+                        return "Cannot open output file: " + e.getMessage();
+                    }
+                };
+            }
+            return () -> "Usage: program-output console | program-output file <path>";
+        });
+
+        // step-filter [add|remove <pattern> | trivial on|off]
+        commandRegistry.registerFactory("step-filter", args -> {
+            if (args.length == 0) {
+                return new StepFilterCommand(self, "list", null);
+            }
+            if (args.length == 2 && (args[0].equals("add") || args[0].equals("remove"))) {
+                return new StepFilterCommand(self, args[0], args[1]);
+            }
+            if (args.length == 2 && args[0].equals("trivial") && (args[1].equals("on") || args[1].equals("off"))) {
+                return new StepFilterCommand(self, "trivial", args[1]);
+            }
+            return () -> "Usage: step-filter [add <pattern> | remove <pattern> | trivial on|off]";
+        });
+
+        // break-before-method-call [Class.]method[(types)]
         commandRegistry.registerFactory("break-before-method-call", args -> {
             if (args.length < 1) {
-                return () -> "Usage: break-before-method-call <methodName>";
+                return () -> "Usage: break-before-method-call [Class.]method[(type, ...)]";
             }
-            return new BreakBeforeMethodCallCommand(self, args[0]);
+            return new BreakBeforeMethodCallCommand(self, String.join(" ", args));
         });
     }
 
-    public void continueExecution() {
-        if (!vm.eventRequestManager().stepRequests().isEmpty()) {
-            for (Object obj : vm.eventRequestManager().stepRequests()) {
-                StepRequest stepRequest = (StepRequest) obj;
-                stepRequest.disable();
+    // step / step-over sans argument : un seul step, arret au prompt
+    // avec <n> [trace] : n steps faits dans dispatch(), bilan (et trace) affiche a la fin
+    private static Command stepFactory(ScriptableDebugger self, int stepType, String[] args) {
+        String name = stepType == StepRequest.STEP_INTO ? "step" : "step-over";
+        if (args.length == 0) {
+            return stepType == StepRequest.STEP_INTO ? new StepCommand(self) : new StepOverCommand(self);
+        }
+        if (args.length > 2 || (args.length == 2 && !args[1].equals("trace"))) {
+            return () -> "Usage: " + name + " [<n> [trace]]";
+        }
+        try {
+            int count = Integer.parseInt(args[0]);
+            if (count <= 0) {
+                return () -> "Invalid number";
             }
+            boolean trace = args.length == 2;
+            return () -> self.runSteps(stepType, count, null, trace);
+        } catch (NumberFormatException e) {
+            return () -> "Invalid number";
+        }
+    }
+
+    public void continueExecution() {
+        if (currentEvent instanceof LocatableEvent) {
+            breakpoints.deleteStepRequests(((LocatableEvent) currentEvent).thread());
         }
         System.out.println(">>> Continuing...");
         shouldResume = true;
     }
 
+    // Cache de l'arret courant (pile, valeurs...), null si le thread courant n'est pas arrete
+    // Toutes les commandes d'un meme arret le partagent ; il est jete quand le thread repart
+    public StopState getStopState() {
+        ThreadReference thread = getCurrentThread();
+        if (thread == null) {
+            return null;
+        }
+        ThreadStop stop = stoppedThreads.get(thread);
+        return stop != null ? stop.getState() : null;
+    }
+
     public StackFrame getCurrentFrame() throws IncompatibleThreadStateException {
-        if (currentEvent != null && currentEvent instanceof LocatableEvent) {
-            LocatableEvent locEvent = (LocatableEvent) currentEvent;
-            if (locEvent.thread().frameCount() > 0) {
-                return locEvent.thread().frame(0);
-            }
+        StopState state = getStopState();
+        return state != null ? state.getFrame(0) : null;
+    }
+
+    // Valeurs de la frame courante, lues en lot une seule fois par arret
+    public FrameSnapshot getSnapshot() throws IncompatibleThreadStateException {
+        StopState state = getStopState();
+        return state != null ? state.getSnapshot(0) : null;
+    }
+
+    // Threads actuellement arretes par le debugger (ordre d'arrivee)
+    public Map<ThreadReference, ThreadStop> getStoppedThreads() {
+        return stoppedThreads;
+    }
+
+    // Thread qui a le focus (celui qu'inspectent les commandes), null si aucun
+    public ThreadReference getCurrentThread() {
+        if (currentEvent instanceof LocatableEvent) {
+            return ((LocatableEvent) currentEvent).thread();
         }
         return null;
     }
 
-    public List<StackFrame> getStackFrames() throws IncompatibleThreadStateException {
-        if (currentEvent != null && currentEvent instanceof LocatableEvent) {
-            LocatableEvent locEvent = (LocatableEvent) currentEvent;
-            return locEvent.thread().frames();
+    public StepFilters getStepFilters() {
+        return stepFilters;
+    }
+
+    public VirtualMachine getVirtualMachine() {
+        return vm;
+    }
+
+    // Donne le focus a un autre thread arrete
+    public boolean selectThread(long threadId) {
+        for (ThreadStop stop : stoppedThreads.values()) {
+            if (stop.getThread().uniqueID() == threadId) {
+                currentEvent = stop.getEvent();
+                return true;
+            }
         }
-        return null;
+        return false;
+    }
+
+    // Mode de suspension des prochains breakpoints et steps :
+    // "thread" ne suspend que le thread de l'evenement, les autres continuent
+    public void setSuspendThreadOnly(boolean threadOnly) {
+        suspendPolicy = threadOnly ? EventRequest.SUSPEND_EVENT_THREAD : EventRequest.SUSPEND_ALL;
+    }
+
+    public boolean isSuspendThreadOnly() {
+        return suspendPolicy == EventRequest.SUSPEND_EVENT_THREAD;
     }
 
     // Retourne la liste des breakpoints
     public List<BreakpointInfo> getBreakpoints() {
-        return breakpoints;
+        return breakpoints != null ? breakpoints.getAll() : null;
     }
 
     // Ajoute un breakpoint simple
     public boolean addBreakpoint(String filename, int lineNumber) {
-        try {
-            for (ReferenceType targetClass : vm.allClasses()) {
-                if (targetClass.name().equals(filename) ||
-                    targetClass.name().endsWith("." + filename)) {
-
-                    List<Location> locations = targetClass.locationsOfLine(lineNumber);
-                    if (!locations.isEmpty()) {
-                        Location location = locations.get(0);
-                        BreakpointRequest bpReq =
-                            vm.eventRequestManager().createBreakpointRequest(location);
-                        bpReq.enable();
-
-                        BreakpointInfo info = new BreakpointInfo(filename, lineNumber, bpReq);
-                        breakpoints.add(info);
-                        return true;
-                    }
-                }
-            }
-        } catch (AbsentInformationException e) {
-            System.out.println("No debug info for " + filename);
-        }
-        return false;
+        return addBreakpoint(filename, lineNumber, null);
+    }
+
+    // Ajoute un breakpoint conditionnel (condition null = toujours)
+    public boolean addBreakpoint(String filename, int lineNumber, Expression condition) {
+        BreakpointInfo info = new BreakpointInfo(filename, lineNumber, null);
+        info.setCondition(condition);
+        return addLineBreakpoint(info);
     }
 
     // Ajoute un breakpoint qui se supprime apres 1 passage
     public boolean addBreakpointOnce(String filename, int lineNumber) {
-        try {
-            for (ReferenceType targetClass : vm.allClasses()) {
-                if (targetClass.name().equals(filename) ||
-                    targetClass.name().endsWith("." + filename)) {
-
-                    List<Location> locations = targetClass.locationsOfLine(lineNumber);
-                    if (!locations.isEmpty()) {
-                        Location location = locations.get(0);
-                        BreakpointRequest bpReq =
-                            vm.eventRequestManager().createBreakpointRequest(location);
-                        bpReq.enable();
-
-                        BreakpointInfo info = new BreakpointInfo(filename, lineNumber, bpReq);
-                        info.setOnce(true);
-                        breakpoints.add(info);
-                        return true;
-                    }
-                }
-            }
-        } catch (AbsentInformationException e) {
-            System.out.println("No debug info for " + filename);
-        }
-        return false;
+        BreakpointInfo info = new BreakpointInfo(filename, lineNumber, null);
+        info.setOnce(true);
+        return addLineBreakpoint(info);
     }
 
     // Ajoute un breakpoint qui s'active apres N passages
     public boolean addBreakpointOnCount(String filename, int lineNumber, int count) {
+        BreakpointInfo info = new BreakpointInfo(filename, lineNumber, null);
+        info.setTargetCount(count);
+        return addLineBreakpoint(info);
+    }
+
+    // Ajoute un breakpoint d'echantillonnage qui s'arrete 1 passage sur N
+    public boolean addBreakpointEvery(String filename, int lineNumber, int n) {
+        BreakpointInfo info = new BreakpointInfo(filename, lineNumber, null);
+        info.setEveryNth(n);
+        return addLineBreakpoint(info);
+    }
+
+    // Cree la request d'un breakpoint sur une ligne et l'enregistre
+    // Si la classe n'est pas encore chargee, le breakpoint est mis en attente
+    private boolean addLineBreakpoint(BreakpointInfo info) {
+        String filename = info.getFilename();
+        if (!info.isLogpoint()) {
+            info.setSuspendPolicy(suspendPolicy);
+        }
+        List<ReferenceType> types = classIndex.find(filename);
+
+        if (types.isEmpty()) {
+            breakpoints.addPending(info);
+            classIndex.watch(filename);
+            System.out.println("Class " + filename + " not loaded yet, breakpoint pending");
+            return true;
+        }
+
+        int requestedLine = info.getLineNumber();
         try {
-            for (ReferenceType targetClass : vm.allClasses()) {
-                if (targetClass.name().equals(filename) ||
-                    targetClass.name().endsWith("." + filename)) {
-
-                    List<Location> locations = targetClass.locationsOfLine(lineNumber);
-                    if (!locations.isEmpty()) {
-                        Location location = locations.get(0);
-                        BreakpointRequest bpReq =
-                            vm.eventRequestManager().createBreakpointRequest(location);
-                        bpReq.enable();
-
-                        BreakpointInfo info = new BreakpointInfo(filename, lineNumber, bpReq);
-                        info.setTargetCount(count);
-                        breakpoints.add(info);
-                        return true;
+            for (ReferenceType targetClass : types) {
+                if (breakpoints.arm(info, targetClass)) {
+                    if (info.getLineNumber() != requestedLine) {
+                        System.out.println("No code at line " + requestedLine + ", using line " + info.getLineNumber());
                     }
+                    return true;
                 }
             }
         } catch (AbsentInformationException e) {
@@ -443,17 +819,43 @@ public class ScriptableDebugger {
         return false;
     }
 
-    // Ajoute un breakpoint sur une methode
-    public boolean addMethodBreakpoint(String methodName) {
-        MethodEntryRequest req = vm.eventRequestManager().createMethodEntryRequest();
-        req.addClassFilter(debugClass.getName());
-        req.enable();
+    // Ajoute un logpoint : produit un message a chaque passage sans arreter le programme
+    public boolean addLogpoint(String filename, int lineNumber, LogTemplate template, int maxPerSecond) {
+        BreakpointInfo info = new BreakpointInfo(filename, lineNumber, null);
+        info.setLogTemplate(template, maxPerSecond);
+        return addLineBreakpoint(info);
+    }
+
+    // Change la sortie des logpoints
+    public String setLogOutput(Consumer<String> sink, String description) {
+        logOutput.flush();
+        logOutput.setSink(sink);
+        return "Logpoint output: " + description;
+    }
+
+    // Change la sortie du programme debugge (stdout et stderr)
+    public String setProgramOutput(Consumer<String> sink, String description) {
+        programOutput.setSink(sink);
+        return "Program output: " + description;
+    }
 
-        // On stocke l'info (pas de ligne specifique)
-        BreakpointInfo info = new BreakpointInfo(methodName, -1, null);
-        breakpoints.add(info);
+    // Ajoute un breakpoint sur une methode : "methode", "Classe.methode" ou "Classe.methode(int, String)"
+    // Pose sur la premiere ligne de chaque surcharge, en attente si la classe n'est pas chargee
+    public boolean addMethodBreakpoint(String methodSpec) {
+        MethodPattern pattern;
+        try {
+            pattern = MethodPattern.parse(methodSpec, debugClass.getName());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid method: " + e.getMessage());
+            return false;
+        }
 
-        System.out.println("Method entry breakpoint set for: " + methodName);
+        BreakpointInfo info = new BreakpointInfo(pattern.getClassName(), -1, null);
+        info.setMethodPattern(pattern);
+        if (!addLineBreakpoint(info)) {
+            System.out.println("No method " + pattern);
+            return false;
+        }
         return true;
     }
 }
@@ -4,8 +4,6 @@ import com.sun.jdi.IncompatibleThreadStateException;
 import com.sun.jdi.ObjectReference;
 import com.sun.jdi.StackFrame;
 
-import java.util.List;
-
 // Affiche l'objet qui a appele la methode courante (le sender)
 public class SenderCommand implements Command {
 
@@ -18,14 +16,14 @@ public class SenderCommand implements Command {
     @Override
     public Object execute() {
         try {
-            List<StackFrame> frames = debugger.getStackFrames();
+            // La frame 0 est la courante, la frame 1 est l'appelant (seule la premiere page est lue)
+            StopState state = debugger.getStopState();
+            StackFrame senderFrame = state != null ? state.getFrame(1) : null;
 
-            if (frames == null || frames.size() < 2) {
+            if (senderFrame == null) {
                 return "No sender (top of stack or no caller)";
             }
 
-            // La frame 0 est la courante, la frame 1 est l'appelant
-            StackFrame senderFrame = frames.get(1);
             ObjectReference sender = senderFrame.thisObject();
 
             if (sender == null) {
@@ -1,39 +1,64 @@
 package dbg;
 
 import com.sun.jdi.IncompatibleThreadStateException;
-import com.sun.jdi.StackFrame;
-import com.sun.jdi.event.LocatableEvent;
+import com.sun.jdi.Location;
 
 import java.util.List;
 
+// stack : pile repliee (recursions regroupees), seulement les premieres pages
+// stack <from> : pile repliee a partir de la frame from (suite d'une recursion ouverte "[1..199+]")
+// stack <from> <count> : frames [from, from + count) une par une, sans repli
 public class StackCommand implements Command {
 
+    private static final int MAX_ROWS = 50;
+
     private ScriptableDebugger debugger;
+    private int from;
+    private int count;      // 0 : vue repliee
 
     public StackCommand(ScriptableDebugger debugger) {
         this.debugger = debugger;
     }
 
+    public StackCommand(ScriptableDebugger debugger, int from) {
+        this.debugger = debugger;
+        this.from = from;
+    }
+
+    public StackCommand(ScriptableDebugger debugger, int from, int count) {
+        this.debugger = debugger;
+        this.from = from;
+        this.count = count;
+    }
+
     @Override
     public Object execute() {
         try {
-            List<StackFrame> frames = debugger.getStackFrames();
+            // Pages de la pile gardees pour tout l'arret
+            StopState state = debugger.getStopState();
 
-            if (frames == null || frames.isEmpty()) {
+            if (state == null || state.getFrameCount() == 0) {
                 return "No stack frames available";
             }
 
+            int frameCount = state.getFrameCount();
+            List<StackRow> rows = count == 0
+                    ? StackRow.load(state, from, MAX_ROWS, StackCommand::describe)
+                    : StackRow.singles(state, from, count, StackCommand::describe);
+            if (rows.isEmpty()) {
+                return "No frames in that range (stack depth: " + frameCount + ")";
+            }
+
             StringBuilder sb = new StringBuilder();
-            sb.append("Call Stack:\n");
-
-            for (int i = 0; i < frames.size(); i++) {
-                StackFrame frame = frames.get(i);
-                sb.append(String.format("  [%d] %s.%s (line %d)\n",
-                        i,
-                        frame.location().declaringType().name(),
-                        frame.location().method().name(),
-                        frame.location().lineNumber()
-                ));
+            sb.append("Call Stack (").append(frameCount).append(" frames):\n");
+            for (StackRow row : rows) {
+                sb.append("  ").append(row.getText()).append("\n");
+            }
+            // Recursion ouverte : on reprend apres sa derniere frame lue
+            int shown = rows.get(rows.size() - 1).getTo() + 1;
+            if (shown < frameCount) {
+                sb.append("  ... ").append(frameCount - shown).append(" more, use: stack ")
+                        .append(shown).append(" [<count>]\n");
             }
 
             return sb.toString().trim();
@@ -42,4 +67,9 @@ public class StackCommand implements Command {
             return "Error: Cannot get stack (thread not suspended)";
         }
     }
-}
\ No newline at end of file
+
+    private static String describe(Location location) {
+        return location.declaringType().name() + "." + location.method().name()
+                + " (line " + location.lineNumber() + ")";
+    }
+}
@@ -0,0 +1,250 @@
+package dbg;
+
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.StackFrame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Une ligne de pile affichee : une frame, ou une recursion repliee
+// Ex: "[12..4810] fib x 4799" (recursion directe), "[40..339] (even > odd) x 150" (motif de 2 frames)
+// La frame courante (index 0) n'est jamais repliee
+// Une recursion qui continue au-dela des pages lues est "ouverte" : "[1..199+] fib x 199+",
+// la suite se lit avec more() qui la prolonge sans relire ni regrouper a nouveau ses frames
+public class StackRow {
+
+    private static final int MAX_PERIOD = 4;  // Longueur max du motif recursif cherche
+    private static final int MIN_REPEAT = 3;  // Repetitions minimum pour replier
+    private static final int MAX_PAGES = 2;   // Pages lues par appel : le premier affichage ne lit pas toute la pile
+
+    private final int from;     // Index de la premiere frame
+    private final int to;       // Index de la derniere frame (incluse)
+    private final int repeat;   // Nombre de repetitions du motif (0 = frame seule)
+    private final boolean open; // Recursion pas finie dans les frames lues
+    private final List<Method> pattern;  // Motif repete (recursion seulement)
+    private final String text;
+
+    private StackRow(int from, int to, int repeat, boolean open, List<Method> pattern, String text) {
+        this.from = from;
+        this.to = to;
+        this.repeat = repeat;
+        this.open = open;
+        this.pattern = pattern;
+        this.text = text;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTo() {
+        return to;
+    }
+
+    public boolean isCollapsed() {
+        return repeat > 0;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    // Lignes repliees a partir de la frame from : au plus MAX_PAGES pages de la pile, moins si on a deja
+    // plus de maxRows lignes ; une pile profonde faite d'une seule recursion donne une ligne ouverte
+    // format : texte d'une frame seule, sans l'index (ex: "Classe.methode:12")
+    public static List<StackRow> load(StopState state, int from, int maxRows, Function<Location, String> format)
+            throws IncompatibleThreadStateException {
+        return read(new Collapser(from, state.getFrameCount(), format), state, from, maxRows);
+    }
+
+    // Suite de la pile apres la derniere ligne affichee, qu'elle remplace : une recursion ouverte est
+    // prolongee (seules les nouvelles frames sont comparees au motif), sinon on repart de son debut
+    public static List<StackRow> more(StopState state, StackRow last, int maxRows, Function<Location, String> format)
+            throws IncompatibleThreadStateException {
+        if (!last.open) {
+            return load(state, last.from, maxRows, format);
+        }
+        Collapser collapser = new Collapser(last.from, state.getFrameCount(), format);
+        collapser.rows.add(last);
+        return read(collapser, state, last.to + 1, maxRows);
+    }
+
+    private static List<StackRow> read(Collapser collapser, StopState state, int start, int maxRows)
+            throws IncompatibleThreadStateException {
+        int count = state.getFrameCount();
+        int end = start;
+        for (int page = 0; page < MAX_PAGES && end < count && collapser.rows.size() <= maxRows; page++) {
+            // Le StopState lit les pages manquantes en un seul frames(start, length)
+            int next = Math.min(count, end + StopState.FRAME_PAGE);
+            collapser.add(end, locations(state.getFrames(end, next - end)));
+            end = next;
+        }
+        // Une recursion ouverte est toujours la derniere ligne
+        List<StackRow> rows = collapser.rows;
+        return rows.size() > maxRows ? new ArrayList<>(rows.subList(0, maxRows)) : rows;
+    }
+
+    // Une ligne par frame, sans repli (ex: "stack <from> <count>", ou une recursion depliee)
+    public static List<StackRow> singles(StopState state, int from, int count, Function<Location, String> format)
+            throws IncompatibleThreadStateException {
+        List<StackRow> rows = new ArrayList<>();
+        List<StackFrame> frames = state.getFrames(from, count);
+        for (int i = 0; i < frames.size(); i++) {
+            rows.add(single(from + i, frames.get(i).location(), format));
+        }
+        return rows;
+    }
+
+    // Recursion depliee une page a la fois : une ligne par frame pour la premiere page (un nombre entier
+    // de motifs), le reste de la recursion reste replie, ouvert s'il l'etait, et se deplie a son tour
+    // Ex: "[12..4810] fib x 4799" -> "[12] ...", ..., "[111] ...", "[112..4810] fib x 4699"
+    public static List<StackRow> unfold(StopState state, StackRow row, Function<Location, String> format)
+            throws IncompatibleThreadStateException {
+        int size = row.to - row.from + 1;
+        if (!row.isCollapsed() || size <= StopState.FRAME_PAGE) {
+            return singles(state, row.from, size, format);
+        }
+        int period = row.pattern.size();
+        int page = StopState.FRAME_PAGE / period * period;
+        List<StackRow> rows = singles(state, row.from, page, format);
+        rows.add(run(row.from + page, row.pattern, row.repeat - page / period, row.open));
+        return rows;
+    }
+
+    private static List<Location> locations(List<StackFrame> frames) {
+        List<Location> locations = new ArrayList<>(frames.size());
+        for (StackFrame frame : frames) {
+            locations.add(frame.location());
+        }
+        return locations;
+    }
+
+    private static StackRow single(int index, Location location, Function<Location, String> format) {
+        return new StackRow(index, index, 0, false, null, "[" + index + "] " + format.apply(location));
+    }
+
+    private static StackRow run(int from, List<Method> pattern, int repeat, boolean open) {
+        StringBuilder label = new StringBuilder();
+        for (int k = 0; k < pattern.size(); k++) {
+            label.append(k > 0 ? " > " : "").append(pattern.get(k).name());
+        }
+        int last = from + repeat * pattern.size() - 1;
+        String more = open ? "+" : "";
+        return new StackRow(from, last, repeat, open, pattern, "[" + from + ".." + last + more + "] "
+                + (pattern.size() == 1 ? label : "(" + label + ")") + " \u00d7 " + repeat + more);
+    }
+
+    // Regroupement au fil des pages : chaque page ajoutee n'est traitee qu'une fois, sauf la fin
+    // encore incertaine de la precedente (recursion ouverte, ou dernieres frames seules qui peuvent
+    // commencer une recursion continuee dans la page suivante)
+    private static class Collapser {
+        private final int total;   // Profondeur de la pile
+        private final Function<Location, String> format;
+        private final List<StackRow> rows = new ArrayList<>();
+        private final List<Location> locations = new ArrayList<>();  // Frames lues, a partir de base
+        private final int base;
+
+        Collapser(int base, int total, Function<Location, String> format) {
+            this.base = base;
+            this.total = total;
+            this.format = format;
+        }
+
+        // Frames [start, start + page.size()) lues a la suite des precedentes
+        void add(int start, List<Location> page) {
+            while (locations.size() < start - base) {
+                locations.add(null);  // Frames d'une recursion ouverte reprise : jamais relues
+            }
+            int end = start + page.size();
+            locations.addAll(page);
+
+            // Fin incertaine de la page precedente : a regrouper a nouveau avec la nouvelle
+            int redo = start;
+            while (!rows.isEmpty()) {
+                StackRow last = rows.get(rows.size() - 1);
+                if (last.open) {
+                    rows.remove(rows.size() - 1);
+                    redo = extend(last, end);
+                    if (rows.get(rows.size() - 1).open) {
+                        return;  // Toute la page continue la recursion
+                    }
+                    break;
+                }
+                if (last.repeat > 0 || last.from < start - MAX_PERIOD * MIN_REPEAT) {
+                    break;
+                }
+                rows.remove(rows.size() - 1);
+                redo = last.from;
+            }
+            collapse(redo, end);
+        }
+
+        // Prolonge une recursion ouverte sur les nouvelles frames ; retourne la premiere frame hors du motif
+        private int extend(StackRow row, int end) {
+            int period = row.pattern.size();
+            int k = row.to + 1;
+            while (k < end && methodAt(k).equals(row.pattern.get((k - row.from) % period))) {
+                k++;
+            }
+            int repeat = (k - row.from) / period;
+            rows.add(run(row.from, row.pattern, repeat, k == end && end < total));
+            return row.from + repeat * period;
+        }
+
+        // Regroupe les frames [i, end) : deux frames se repetent si elles sont dans la meme methode
+        // (seules les frames seules sont formatees)
+        private void collapse(int i, int end) {
+            while (i < end) {
+                int bestPeriod = 0;
+                int bestLength = 0;
+                boolean bestOpen = false;
+                if (i > 0) {
+                    for (int period = 1; period <= MAX_PERIOD && i + period <= end; period++) {
+                        // Longueur de la suite ou chaque frame repete celle d'une periode avant
+                        int j = i + period;
+                        while (j < end && methodAt(j).equals(methodAt(j - period))) {
+                            j++;
+                        }
+                        int length = (j - i) / period * period;
+                        if (length / period >= MIN_REPEAT && length > bestLength) {
+                            bestPeriod = period;
+                            bestLength = length;
+                            bestOpen = j == end && end < total;
+                        }
+                    }
+                }
+
+                if (bestPeriod == 0) {
+                    rows.add(single(i, locations.get(i - base), format));
+                    i++;
+                    continue;
+                }
+                List<Method> pattern = new ArrayList<>(bestPeriod);
+                for (int k = i; k < i + bestPeriod; k++) {
+                    pattern.add(methodAt(k));
+                }
+                rows.add(run(i, pattern, bestLength / bestPeriod, bestOpen));
+                if (bestOpen) {
+                    return;  // Les frames apres la derniere periode complete sont relues avec la page suivante
+                }
+                i += bestLength;
+            }
+        }
+
+        private Method methodAt(int index) {
+            return locations.get(index - base).method();
+        }
+    }
+}
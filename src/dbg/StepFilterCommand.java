@@ -0,0 +1,45 @@
+package dbg;
+
+// Affiche ou modifie les filtres de step :
+//   step-filter                    -> liste des exclusions
+//   step-filter add|remove <motif> -> ex: "org.slf4j.*"
+//   step-filter trivial on|off     -> step into qui saute getters/setters/constructeurs simples
+public class StepFilterCommand implements Command {
+
+    private ScriptableDebugger debugger;
+    private String action;
+    private String value;
+
+    public StepFilterCommand(ScriptableDebugger debugger, String action, String value) {
+        this.debugger = debugger;
+        this.action = action;
+        this.value = value;
+    }
+
+    @Override
+    public Object execute() {
+        StepFilters filters = debugger.getStepFilters();
+        if (filters == null) {
+            return "No step filters (VM not started)";
+        }
+
+        switch (action) {
+            case "add":
+                filters.addExclusion(value);
+                break;
+            case "remove":
+                if (!filters.removeExclusion(value)) {
+                    return "No step filter " + value;
+                }
+                break;
+            case "trivial":
+                filters.setSkipTrivial(value.equals("on"));
+                break;
+            default:
+                break;
+        }
+
+        return "Step filters: " + String.join(", ", filters.getExclusions())
+                + "\nSkip trivial methods: " + (filters.isSkipTrivial() ? "on" : "off");
+    }
+}
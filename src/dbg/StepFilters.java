@@ -0,0 +1,290 @@
+package dbg;
+
+import com.sun.jdi.ClassType;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.InterfaceType;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.request.StepRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Filtres de step partages par le debugger CLI et le debugger GUI
+// - exclusions de classes (java.*, ...) posees sur la StepRequest : la VM cible saute
+//   elle-meme ces frames, sans evenement ni aller-retour JDWP
+// - step into "intelligent" : avant de lancer le step, on lit le bytecode de la ligne
+//   courante ; si tous les appels visent des methodes triviales (getter, setter, constructeur
+//   qui affecte des champs, bridge...), on fait un step over a la place
+// - a l'arrivee, les frames de plomberie (bridges, classes $$Lambda) sont traversees
+public class StepFilters {
+
+    private static final List<String> DEFAULT_EXCLUSIONS =
+            Arrays.asList("java.*", "javax.*", "sun.*", "jdk.*", "com.sun.*");
+    private static final int MAX_DEPTH = 3;  // Appels imbriques examines (bridge -> methode -> super())
+
+    private final VirtualMachine vm;
+    private final ClassIndex classIndex;
+    private final List<String> exclusions;
+    private volatile boolean skipTrivial = true;
+    private final Map<Method, Boolean> trivialMethods;  // Le bytecode ne change pas : resultat garde
+    private final Map<ReferenceType, BytecodeAnalyzer.ConstantPool> constantPools;
+
+    public StepFilters(VirtualMachine vm, ClassIndex classIndex) {
+        this.vm = vm;
+        this.classIndex = classIndex;
+        this.exclusions = new CopyOnWriteArrayList<>(DEFAULT_EXCLUSIONS);
+        this.trivialMethods = new ConcurrentHashMap<>();
+        this.constantPools = new ConcurrentHashMap<>();
+    }
+
+    // Cree une StepRequest avec les exclusions (la profondeur est choisie par chooseDepth)
+    public StepRequest createStepRequest(ThreadReference thread, int depth, int suspendPolicy) {
+        StepRequest request = vm.eventRequestManager().createStepRequest(thread, StepRequest.STEP_LINE, depth);
+        for (String pattern : exclusions) {
+            request.addClassExclusionFilter(pattern);
+        }
+        request.setSuspendPolicy(suspendPolicy);
+        request.enable();
+        return request;
+    }
+
+    // Step into sur une ligne dont tous les appels sont triviaux -> step over (meme resultat, sans arret)
+    public int chooseDepth(ThreadReference thread, int depth) {
+        if (depth != StepRequest.STEP_INTO || !skipTrivial || !vm.canGetBytecodes() || !vm.canGetConstantPool()) {
+            return depth;
+        }
+        try {
+            Location location = thread.frame(0).location();
+            List<BytecodeAnalyzer.Invoke> invokes =
+                    BytecodeAnalyzer.invokesOnLine(location.method(), location.lineNumber(), pool(location.declaringType()));
+            if (invokes == null || invokes.isEmpty()) {
+                return depth;  // Rien a ignorer : le step into reste un step into
+            }
+            for (BytecodeAnalyzer.Invoke invoke : invokes) {
+                if (!isTrivialCall(invoke, MAX_DEPTH)) {
+                    return depth;
+                }
+            }
+            return StepRequest.STEP_OVER;
+        } catch (IncompatibleThreadStateException | RuntimeException e) {
+            return depth;  // En cas de doute, step into normal
+        }
+    }
+
+    // Vrai si le step vient de s'arreter dans du code de plomberie a traverser
+    // (bridge/accesseur synthetique, classe generee pour une lambda), pas dans un corps de lambda
+    public boolean shouldSkip(Location location) {
+        if (!skipTrivial) {
+            return false;
+        }
+        Method method = location.method();
+        if (location.declaringType().name().contains("$$Lambda")) {
+            return true;
+        }
+        return (method.isSynthetic() || method.isBridge()) && !method.name().startsWith("lambda$");
+    }
+
+    // Un appel est trivial si toutes les methodes qu'il peut atteindre sont triviales
+    // - invokedynamic : voir isTrivialDynamic
+    // - classe exclue : non trivial (le JDK peut rappeler du code utilisateur, ex: forEach)
+    // - invokevirtual/invokeinterface : la methode et ses redefinitions dans les classes chargees
+    private boolean isTrivialCall(BytecodeAnalyzer.Invoke invoke, int depth) {
+        if (invoke.opcode == BytecodeAnalyzer.INVOKEDYNAMIC) {
+            return isTrivialDynamic(invoke);
+        }
+        if (depth <= 0 || isExcluded(invoke.className)) {
+            return false;
+        }
+        ReferenceType type = classIndex.findFirst(invoke.className);
+        if (type == null) {
+            return false;  // Classe pas encore chargee : son <clinit> peut s'executer
+        }
+
+        Method target = resolve(type, invoke.name, invoke.signature);
+        if (target == null || !isTrivial(target, depth)) {
+            return false;
+        }
+        if (invoke.opcode == BytecodeAnalyzer.INVOKESTATIC || invoke.opcode == BytecodeAnalyzer.INVOKESPECIAL
+                || target.isFinal() || target.isPrivate()) {
+            return true;
+        }
+        for (ReferenceType subtype : subtypes(type)) {
+            for (Method override : subtype.methodsByName(invoke.name, invoke.signature)) {
+                if (!override.isAbstract() && !isTrivial(override, depth)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // La methode de bootstrap n'est pas lisible via JDI (attribut BootstrapMethods) : on juge sur le nom
+    // et le descripteur du site d'appel
+    // - concatenation (makeConcat...) : triviale seulement si les arguments sont des primitives, des chaines
+    //   ou des tableaux ; un objet passe par son toString(), qui peut etre du code utilisateur
+    // - creation d'une lambda / reference de methode : le site renvoie une interface (deja chargee),
+    //   le corps n'est pas execute a la creation
+    // - le reste (toString/equals des records, bootstraps inconnus...) : non trivial
+    private boolean isTrivialDynamic(BytecodeAnalyzer.Invoke invoke) {
+        String signature = invoke.signature;
+        int close = signature.indexOf(')');
+        if (invoke.name.startsWith("makeConcat")) {
+            int i = 1;
+            while (i < close) {
+                char c = signature.charAt(i);
+                if (c == '[') {
+                    // Tableau : toString() d'Object, jamais redefini
+                    while (signature.charAt(i) == '[') {
+                        i++;
+                    }
+                    i = signature.charAt(i) == 'L' ? signature.indexOf(';', i) + 1 : i + 1;
+                } else if (c == 'L') {
+                    int end = signature.indexOf(';', i);
+                    if (!signature.substring(i + 1, end).equals("java/lang/String")) {
+                        return false;
+                    }
+                    i = end + 1;
+                } else {
+                    i++;
+                }
+            }
+            return true;
+        }
+        String returned = signature.substring(close + 1);
+        if (!returned.startsWith("L")) {
+            return false;
+        }
+        ReferenceType type = classIndex.findFirst(returned.substring(1, returned.length() - 1).replace('/', '.'));
+        return type instanceof InterfaceType;
+    }
+
+    // Methode executee pour un appel sur ce type (heritee eventuellement)
+    private Method resolve(ReferenceType type, String name, String signature) {
+        if (type instanceof ClassType) {
+            Method method = ((ClassType) type).concreteMethodByName(name, signature);
+            if (method != null) {
+                return method;
+            }
+        }
+        for (Method method : type.allMethods()) {
+            if (method.name().equals(name) && method.signature().equals(signature)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    // Getter, setter, constructeur qui affecte des champs, accesseur ou bridge synthetique
+    private boolean isTrivial(Method method, int depth) {
+        if (isExcluded(method.declaringType().name())) {
+            return false;
+        }
+        if (method.isAbstract()) {
+            return true;  // Seules les implementations comptent (verifiees par l'appelant)
+        }
+        if (method.isNative()) {
+            return false;
+        }
+
+        Boolean cached = trivialMethods.get(method);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean plumbing = (method.isSynthetic() || method.isBridge()) && !method.name().startsWith("lambda$");
+        boolean allowInvokes = plumbing || method.isConstructor();
+        boolean trivial = BytecodeAnalyzer.isSimpleBody(method.bytecodes(), allowInvokes);
+        if (trivial && allowInvokes) {
+            for (BytecodeAnalyzer.Invoke invoke : BytecodeAnalyzer.invokesOf(method, pool(method.declaringType()))) {
+                boolean superConstructor = invoke.name.equals("<init>") && invoke.className.equals("java.lang.Object");
+                if (!superConstructor && !isTrivialCall(invoke, depth - 1)) {
+                    trivial = false;
+                    break;
+                }
+            }
+        }
+
+        // Les resultats qui dependent de la profondeur restante ne sont pas gardes
+        if (trivial || !allowInvokes) {
+            trivialMethods.put(method, trivial);
+        }
+        return trivial;
+    }
+
+    // Sous-classes et implementations chargees
+    private List<ReferenceType> subtypes(ReferenceType type) {
+        List<ReferenceType> result = new ArrayList<>();
+        List<ReferenceType> todo = new ArrayList<>();
+        todo.add(type);
+        while (!todo.isEmpty()) {
+            ReferenceType current = todo.remove(todo.size() - 1);
+            List<? extends ReferenceType> children;
+            if (current instanceof ClassType) {
+                children = ((ClassType) current).subclasses();
+            } else if (current instanceof InterfaceType) {
+                List<ReferenceType> both = new ArrayList<>(((InterfaceType) current).implementors());
+                both.addAll(((InterfaceType) current).subinterfaces());
+                children = both;
+            } else {
+                children = new ArrayList<>();
+            }
+            for (ReferenceType child : children) {
+                if (!result.contains(child)) {
+                    result.add(child);
+                    todo.add(child);
+                }
+            }
+        }
+        return result;
+    }
+
+    private BytecodeAnalyzer.ConstantPool pool(ReferenceType type) {
+        return constantPools.computeIfAbsent(type, BytecodeAnalyzer.ConstantPool::of);
+    }
+
+    // Meme syntaxe que addClassExclusionFilter : "java.*", "*.Foo" ou nom exact
+    public boolean isExcluded(String className) {
+        for (String pattern : exclusions) {
+            if (pattern.endsWith("*") && className.startsWith(pattern.substring(0, pattern.length() - 1))) {
+                return true;
+            }
+            if (pattern.startsWith("*") && className.endsWith(pattern.substring(1))) {
+                return true;
+            }
+            if (pattern.equals(className)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<String> getExclusions() {
+        return exclusions;
+    }
+
+    public void addExclusion(String pattern) {
+        if (!exclusions.contains(pattern)) {
+            exclusions.add(pattern);
+        }
+    }
+
+    public boolean removeExclusion(String pattern) {
+        return exclusions.remove(pattern);
+    }
+
+    public boolean isSkipTrivial() {
+        return skipTrivial;
+    }
+
+    public void setSkipTrivial(boolean skipTrivial) {
+        this.skipTrivial = skipTrivial;
+    }
+}
@@ -0,0 +1,146 @@
+package dbg;
+
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.Location;
+import com.sun.jdi.Method;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.StringReference;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.Value;
+import com.sun.jdi.event.LocatableEvent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Suite de steps faite dans la boucle d'evenements, sans repasser par le prompt :
+// "step <n>", "step-over <n>", "step-until <condition>"
+// A chaque step intermediaire la VM est relancee tout de suite (pas d'affichage, pas de lecture de commande) ;
+// la suite s'arrete au bout de n steps, quand la condition devient vraie, ou sur un breakpoint
+// Trace optionnelle : une ligne par step (ligne atteinte + locales modifiees), affichee a la fin
+public class StepRun {
+
+    public static final int MAX_UNTIL_STEPS = 100000;  // Garde-fou de step-until
+    private static final int MAX_TRACE = 1000;         // Lignes de trace gardees (les plus recentes)
+    private static final int MAX_VALUE_CHARS = 40;
+
+    private final ThreadReference thread;
+    private final int stepType;
+    private final int maxSteps;
+    private final Expression until;   // null pour step <n>
+    private final boolean trace;
+
+    private int steps;
+    private String outcome;
+    private final Deque<String> traceLines = new ArrayDeque<>();
+    private int omitted;              // Lignes de trace sorties de la fenetre
+    private Map<String, Value> previousLocals = new HashMap<>();
+    private Method previousMethod;
+
+    public StepRun(ThreadReference thread, int stepType, int maxSteps, Expression until, boolean trace) {
+        this.thread = thread;
+        this.stepType = stepType;
+        this.maxSteps = maxSteps;
+        this.until = until;
+        this.trace = trace;
+    }
+
+    public ThreadReference getThread() {
+        return thread;
+    }
+
+    public int getStepType() {
+        return stepType;
+    }
+
+    // Un step de la suite vient de se terminer : vrai s'il faut en faire un autre
+    public boolean onStep(LocatableEvent event) {
+        steps++;
+        try {
+            if (trace) {
+                record(event.location());
+            }
+            if (until != null && until.test(thread.frame(0))) {
+                outcome = "condition " + until.getSource() + " met";
+                return false;
+            }
+        } catch (IncompatibleThreadStateException | RuntimeException e) {
+            // Ex: on est sorti de la methode ou la variable existe, index hors bornes, erreur JDI
+            // (objet collecte, frame invalide...) : la suite s'arrete ici au lieu de finir la session
+            outcome = (until != null ? "condition error (" + until.getSource() + "): " : "error: ")
+                    + Expression.describeError(e);
+            return false;
+        }
+        if (steps >= maxSteps) {
+            outcome = until != null ? "step limit " + maxSteps + " reached" : "done";
+            return false;
+        }
+        return true;
+    }
+
+    // La suite est interrompue (breakpoint, fin du programme...)
+    public void interrupt(String reason) {
+        outcome = reason;
+    }
+
+    // Bilan affiche une fois la suite terminee
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(">>> ").append(steps).append(steps == 1 ? " step" : " steps").append(": ").append(outcome);
+        if (trace) {
+            sb.append("\nTrace:");
+            if (omitted > 0) {
+                sb.append("\n  ... ").append(omitted).append(" earlier steps");
+            }
+            for (String line : traceLines) {
+                sb.append("\n  ").append(line);
+            }
+        }
+        return sb.toString();
+    }
+
+    // "Classe.methode:12  i=3 sum=6" (seulement la ligne si on reste dans la meme methode)
+    private void record(Location location) throws IncompatibleThreadStateException {
+        StringBuilder sb = new StringBuilder();
+        Method method = location.method();
+        if (!method.equals(previousMethod)) {
+            sb.append(location.declaringType().name()).append('.').append(method.name());
+            previousMethod = method;
+            previousLocals = new HashMap<>();  // Autre frame : toutes ses locales sont nouvelles
+        }
+        sb.append(':').append(location.lineNumber());
+
+        // Locales lues en un seul appel (FrameSnapshot), comparees au step precedent
+        Map<String, Value> locals = FrameSnapshot.capture(thread.frame(0)).getLocals();
+        for (Map.Entry<String, Value> local : locals.entrySet()) {
+            Value previous = previousLocals.get(local.getKey());
+            if (!previousLocals.containsKey(local.getKey()) || !Objects.equals(previous, local.getValue())) {
+                sb.append("  ").append(local.getKey()).append('=').append(compact(local.getValue()));
+            }
+        }
+        previousLocals = locals;
+
+        traceLines.addLast(sb.toString());
+        if (traceLines.size() > MAX_TRACE) {
+            traceLines.removeFirst();
+            omitted++;
+        }
+    }
+
+    // Valeur courte pour la trace : pas de lecture de contenu (sauf le debut d'une chaine)
+    private static String compact(Value value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof StringReference) {
+            return StringPreview.of((StringReference) value, MAX_VALUE_CHARS).toDisplay();
+        }
+        if (value instanceof ObjectReference) {
+            ObjectReference obj = (ObjectReference) value;
+            return obj.referenceType().name() + "#" + obj.uniqueID();
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package dbg;
+
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.Location;
+import com.sun.jdi.StackFrame;
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.VirtualMachine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Etat d'un thread pendant un arret (une "suspension"), rempli au premier besoin :
+// pile (lue par pages de FRAME_PAGE frames avec thread.frames(start, length)), snapshots de frames,
+// descriptions de frames, liste des threads, morceaux deja lus des grands tableaux
+// Partage par toutes les commandes du meme arret ; jete des que le thread repart
+// (les StackFrame JDI ne sont plus valides apres une reprise)
+public class StopState {
+
+    public static final int FRAME_PAGE = 100;
+
+    private final long epoch;              // Numero de la suspension
+    private final ThreadReference thread;
+    private final boolean vmSuspended;     // SUSPEND_ALL : la liste des threads ne bouge pas
+    private volatile boolean valid = true;
+
+    private int frameCount = -1;
+    private StackFrame[] frames;           // Pages deja lues (null = pas encore lue)
+    private final Map<Integer, FrameSnapshot> snapshots = new HashMap<>();
+    private final Map<Integer, String> descriptions = new HashMap<>();
+    private List<ThreadReference> threads;
+    private final Map<Long, ArrayPager> arrays = new HashMap<>();  // Par uniqueID du tableau
+
+    public StopState(long epoch, ThreadReference thread, boolean vmSuspended) {
+        this.epoch = epoch;
+        this.thread = thread;
+        this.vmSuspended = vmSuspended;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public ThreadReference getThread() {
+        return thread;
+    }
+
+    // Faux des que le thread a ete relance
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void invalidate() {
+        valid = false;
+    }
+
+    // Profondeur de la pile, sans lire les frames
+    public synchronized int getFrameCount() throws IncompatibleThreadStateException {
+        checkValid();
+        if (frameCount < 0) {
+            frameCount = thread.frameCount();
+            frames = new StackFrame[frameCount];
+        }
+        return frameCount;
+    }
+
+    // Frames [from, from + count) (tronque a la fin de la pile) ; seules les pages manquantes sont lues
+    public synchronized List<StackFrame> getFrames(int from, int count) throws IncompatibleThreadStateException {
+        int end = Math.min(getFrameCount(), from + count);
+        if (from < 0 || from >= end) {
+            return List.of();
+        }
+        // Premiere et derniere page manquantes, lues en un seul appel
+        int first = from;
+        while (first < end && frames[first] != null) {
+            first++;
+        }
+        if (first < end) {
+            int last = end - 1;
+            while (frames[last] != null) {
+                last--;
+            }
+            int start = first / FRAME_PAGE * FRAME_PAGE;
+            int stop = Math.min(frameCount, (last / FRAME_PAGE + 1) * FRAME_PAGE);
+            List<StackFrame> page = thread.frames(start, stop - start);
+            for (int i = 0; i < page.size(); i++) {
+                frames[start + i] = page.get(i);
+            }
+        }
+        return Arrays.asList(frames).subList(from, end);
+    }
+
+    // Pile complete (a eviter sur une pile profonde : preferer getFrames(from, count))
+    public List<StackFrame> getFrames() throws IncompatibleThreadStateException {
+        return getFrames(0, getFrameCount());
+    }
+
+    // Frame a cet index (0 = courante), null si la pile est plus courte
+    public StackFrame getFrame(int index) throws IncompatibleThreadStateException {
+        List<StackFrame> frame = getFrames(index, 1);
+        return frame.isEmpty() ? null : frame.get(0);
+    }
+
+    // Valeurs d'une frame (locales, this, statiques), lues en lot une seule fois
+    public synchronized FrameSnapshot getSnapshot(int index) throws IncompatibleThreadStateException {
+        FrameSnapshot snapshot = snapshots.get(index);
+        if (snapshot == null) {
+            StackFrame frame = getFrame(index);
+            if (frame == null) {
+                return null;
+            }
+            snapshot = FrameSnapshot.capture(frame);
+            snapshots.put(index, snapshot);
+        }
+        return snapshot;
+    }
+
+    // "Classe.methode (line N)" d'une frame
+    public synchronized String describe(int index) throws IncompatibleThreadStateException {
+        String description = descriptions.get(index);
+        if (description == null) {
+            StackFrame frame = getFrame(index);
+            if (frame == null) {
+                return null;
+            }
+            Location location = frame.location();
+            description = location.declaringType().name() + "." + location.method().name()
+                    + " (line " + location.lineNumber() + ")";
+            descriptions.put(index, description);
+        }
+        return description;
+    }
+
+    // Lecteur par morceaux d'un tableau, garde pour les print-var suivants du meme arret
+    public synchronized ArrayPager getArrayPager(ArrayReference array) throws IncompatibleThreadStateException {
+        checkValid();
+        return arrays.computeIfAbsent(array.uniqueID(), id -> new ArrayPager(array));
+    }
+
+    // Threads de la VM (gardes seulement si toute la VM est suspendue)
+    public synchronized List<ThreadReference> getThreads(VirtualMachine vm) {
+        if (!vmSuspended || !valid) {
+            return vm.allThreads();
+        }
+        if (threads == null) {
+            threads = vm.allThreads();
+        }
+        return threads;
+    }
+
+    private void checkValid() throws IncompatibleThreadStateException {
+        if (!valid) {
+            throw new IncompatibleThreadStateException("thread resumed since this stop");
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package dbg;
+
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.Field;
+import com.sun.jdi.PrimitiveValue;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.StringReference;
+import com.sun.jdi.Value;
+import com.sun.jdi.VirtualMachine;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Morceau d'une chaine lu sans transferer toute la chaine (StringReference.value() lit tout)
+// - JDK 9+ : tableau byte[] value + champ coder (0 = LATIN1, 1 octet par char ; 1 = UTF16, 2 octets par char
+//   dans l'ordre de StringUTF16.HI_BYTE_SHIFT)
+// - JDK 8 : tableau char[] value
+// Seuls les octets de la plage demandee sont lus (un ArrayReference.getValues)
+public class StringPreview {
+
+    public static final int DEFAULT_LIMIT = 200;  // Caracteres montres par les commandes CLI
+
+    private static final Map<VirtualMachine, Integer> hiByteShifts = new WeakHashMap<>();  // Lu une fois par VM
+
+    private final String text;    // Caracteres [from, from + text.length()[
+    private final int from;
+    private final int length;     // Longueur totale de la chaine
+
+    private StringPreview(String text, int from, int length) {
+        this.text = text;
+        this.from = from;
+        this.length = length;
+    }
+
+    // Debut de la chaine (au plus maxChars caracteres)
+    public static StringPreview of(StringReference string, int maxChars) {
+        return read(string, 0, maxChars);
+    }
+
+    // Caracteres [from, from + count[ de la chaine
+    public static StringPreview read(StringReference string, int from, int count) {
+        try {
+            return readBacking(string, from, count);
+        } catch (RuntimeException e) {
+            // Champs internes inconnus (autre JVM) : on lit toute la chaine
+            String value = string.value();
+            int start = Math.min(from, value.length());
+            return new StringPreview(value.substring(start, Math.min(value.length(), start + count)), start, value.length());
+        }
+    }
+
+    private static StringPreview readBacking(StringReference string, int from, int count) {
+        ReferenceType type = string.referenceType();
+        Field coderField = type.fieldByName("coder");
+        Value[] values = coderField != null
+                ? ValueRenderers.read(string, "value", "coder")
+                : ValueRenderers.read(string, "value");
+        ArrayReference array = (ArrayReference) values[0];
+
+        // JDK 8 : char[]
+        if (coderField == null) {
+            int length = array.length();
+            int start = Math.min(from, length);
+            int n = Math.min(count, length - start);
+            StringBuilder sb = new StringBuilder(n);
+            if (n > 0) {
+                for (Value c : array.getValues(start, n)) {
+                    sb.append(((PrimitiveValue) c).charValue());
+                }
+            }
+            return new StringPreview(sb.toString(), start, length);
+        }
+
+        boolean utf16 = ((PrimitiveValue) values[1]).byteValue() != 0;
+        int length = utf16 ? array.length() / 2 : array.length();
+        int start = Math.min(from, length);
+        int n = Math.min(count, length - start);
+        StringBuilder sb = new StringBuilder(n);
+        if (n == 0) {
+            return new StringPreview("", start, length);
+        }
+
+        if (!utf16) {
+            for (Value b : array.getValues(start, n)) {
+                sb.append((char) (((PrimitiveValue) b).byteValue() & 0xff));
+            }
+            return new StringPreview(sb.toString(), start, length);
+        }
+
+        int hiShift = hiByteShift(string);
+        int loShift = 8 - hiShift;
+        List<Value> bytes = array.getValues(2 * start, 2 * n);
+        for (int i = 0; i < n; i++) {
+            int hi = ((PrimitiveValue) bytes.get(2 * i)).byteValue() & 0xff;
+            int lo = ((PrimitiveValue) bytes.get(2 * i + 1)).byteValue() & 0xff;
+            sb.append((char) ((hi << hiShift) | (lo << loShift)));
+        }
+        return new StringPreview(sb.toString(), start, length);
+    }
+
+    // Ordre des octets des chaines UTF16 de la VM cible (8 = big endian, 0 = little endian)
+    private static synchronized int hiByteShift(StringReference string) {
+        return hiByteShifts.computeIfAbsent(string.virtualMachine(), StringPreview::readHiByteShift);
+    }
+
+    private static int readHiByteShift(VirtualMachine vm) {
+        List<ReferenceType> types = vm.classesByName("java.lang.StringUTF16");
+        if (!types.isEmpty()) {
+            Field field = types.get(0).fieldByName("HI_BYTE_SHIFT");
+            if (field != null && field.isStatic()) {
+                Value value = types.get(0).getValue(field);
+                if (value instanceof PrimitiveValue) {
+                    return ((PrimitiveValue) value).intValue();
+                }
+            }
+        }
+        return 0;  // x86 / ARM : little endian
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // Vrai s'il reste des caracteres apres ce morceau
+    public boolean hasMore() {
+        return from + text.length() < length;
+    }
+
+    // "debut..." (length=N) si la chaine est tronquee, "texte" sinon
+    public String toDisplay() {
+        if (from == 0 && !hasMore()) {
+            return "\"" + text + "\"";
+        }
+        return "\"" + text + "...\" (length=" + length + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package dbg;
+
+// Choisit ce que suspendent les prochains breakpoints et steps :
+// - all    : toute la VM (comportement par defaut)
+// - thread : seulement le thread qui s'arrete, les autres continuent de tourner
+public class SuspendModeCommand implements Command {
+
+    private ScriptableDebugger debugger;
+    private boolean threadOnly;
+
+    public SuspendModeCommand(ScriptableDebugger debugger, boolean threadOnly) {
+        this.debugger = debugger;
+        this.threadOnly = threadOnly;
+    }
+
+    @Override
+    public Object execute() {
+        debugger.setSuspendThreadOnly(threadOnly);
+        return "Suspend mode: " + (threadOnly ? "thread (other threads keep running)" : "all");
+    }
+}
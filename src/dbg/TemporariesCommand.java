@@ -1,12 +1,8 @@
 package dbg;
 
-import com.sun.jdi.AbsentInformationException;
 import com.sun.jdi.IncompatibleThreadStateException;
-import com.sun.jdi.LocalVariable;
-import com.sun.jdi.StackFrame;
 import com.sun.jdi.Value;
 
-import java.util.List;
 import java.util.Map;
 
 public class TemporariesCommand implements Command {
@@ -20,26 +16,31 @@ public class TemporariesCommand implements Command {
     @Override
     public Object execute() {
         try {
-            StackFrame frame = debugger.getCurrentFrame();
+            FrameSnapshot snapshot = debugger.getSnapshot();
 
-            if (frame == null) {
+            if (snapshot == null) {
                 return "No frame available";
             }
 
-            List<LocalVariable> localVars = frame.visibleVariables();
+            if (!snapshot.hasDebugInfo()) {
+                return "Error: No debug information available (compile with -g flag)";
+            }
+
+            // Valeurs lues en un seul getValues a l'arret
+            Map<String, Value> locals = snapshot.getLocals();
 
-            if (localVars.isEmpty()) {
+            if (locals.isEmpty()) {
                 return "No local variables";
             }
 
             StringBuilder sb = new StringBuilder();
             sb.append("Local Variables:\n");
 
-            for (LocalVariable var : localVars) {
-                Value value = frame.getValue(var);
+            for (Map.Entry<String, Value> entry : locals.entrySet()) {
+                Value value = entry.getValue();
                 sb.append(String.format("  %s = %s\n",
-                        var.name(),
-                        value != null ? value.toString() : "null"
+                        entry.getKey(),
+                        ValueRenderers.getDefault().format(value)
                 ));
             }
 
@@ -47,8 +48,6 @@ public class TemporariesCommand implements Command {
 
         } catch (IncompatibleThreadStateException e) {
             return "Error: Thread not suspended";
-        } catch (AbsentInformationException e) {
-            return "Error: No debug information available (compile with -g flag)";
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package dbg;
+
+// Donne le focus a un autre thread arrete : les commandes (stack, temporaries...)
+// et le prochain step/continue s'appliquent a ce thread
+public class ThreadCommand implements Command {
+
+    private ScriptableDebugger debugger;
+    private long threadId;
+
+    public ThreadCommand(ScriptableDebugger debugger, long threadId) {
+        this.debugger = debugger;
+        this.threadId = threadId;
+    }
+
+    @Override
+    public Object execute() {
+        if (!debugger.selectThread(threadId)) {
+            return "Thread " + threadId + " is not stopped (see 'threads')";
+        }
+        return "Current thread: " + debugger.getCurrentThread().name() + " [" + threadId + "]";
+    }
+}
@@ -0,0 +1,44 @@
+package dbg;
+
+import com.sun.jdi.ThreadReference;
+import com.sun.jdi.event.EventSet;
+import com.sun.jdi.event.LocatableEvent;
+import com.sun.jdi.request.EventRequest;
+
+// Etat d'un thread arrete par le debugger : l'evenement qui l'a arrete,
+// l'EventSet a reprendre pour le relancer (lui seul en mode "thread")
+// et le cache de l'arret (pile, valeurs), jete a la reprise
+public class ThreadStop {
+
+    private final LocatableEvent event;
+    private final EventSet eventSet;
+    private final StopState state;
+
+    public ThreadStop(LocatableEvent event, EventSet eventSet, long epoch) {
+        this.event = event;
+        this.eventSet = eventSet;
+        this.state = new StopState(epoch, event.thread(), eventSet.suspendPolicy() == EventRequest.SUSPEND_ALL);
+    }
+
+    public LocatableEvent getEvent() {
+        return event;
+    }
+
+    public EventSet getEventSet() {
+        return eventSet;
+    }
+
+    public ThreadReference getThread() {
+        return event.thread();
+    }
+
+    public StopState getState() {
+        return state;
+    }
+
+    // Relance le ou les threads suspendus par cet evenement
+    public void resume() {
+        state.invalidate();
+        eventSet.resume();
+    }
+}
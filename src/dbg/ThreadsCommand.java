@@ -0,0 +1,75 @@
+package dbg;
+
+import com.sun.jdi.ThreadReference;
+
+import java.util.List;
+import java.util.Map;
+
+// Liste les threads de la VM : * = thread qui a le focus, les threads arretes
+// par le debugger affichent leur position
+public class ThreadsCommand implements Command {
+
+    private ScriptableDebugger debugger;
+
+    public ThreadsCommand(ScriptableDebugger debugger) {
+        this.debugger = debugger;
+    }
+
+    @Override
+    public Object execute() {
+        Map<ThreadReference, ThreadStop> stopped = debugger.getStoppedThreads();
+        ThreadReference current = debugger.getCurrentThread();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Threads (suspend mode: ").append(debugger.isSuspendThreadOnly() ? "thread" : "all").append("):\n");
+
+        // Liste gardee pendant l'arret quand toute la VM est suspendue
+        StopState state = debugger.getStopState();
+        List<ThreadReference> threads = state != null
+                ? state.getThreads(debugger.getVirtualMachine())
+                : debugger.getVirtualMachine().allThreads();
+
+        for (ThreadReference thread : threads) {
+            sb.append(thread.equals(current) ? "* " : "  ");
+            sb.append(String.format("[%d] %s - ", thread.uniqueID(), thread.name()));
+
+            ThreadStop stop = stopped.get(thread);
+            if (stop != null) {
+                sb.append("stopped at ").append(stop.getEvent().location());
+            } else {
+                sb.append(statusName(thread));
+            }
+            sb.append("\n");
+        }
+
+        return sb.toString().trim();
+    }
+
+    private static String statusName(ThreadReference thread) {
+        String status;
+        switch (thread.status()) {
+            case ThreadReference.THREAD_STATUS_RUNNING:
+                status = "running";
+                break;
+            case ThreadReference.THREAD_STATUS_SLEEPING:
+                status = "sleeping";
+                break;
+            case ThreadReference.THREAD_STATUS_MONITOR:
+                status = "blocked";
+                break;
+            case ThreadReference.THREAD_STATUS_WAIT:
+                status = "waiting";
+                break;
+            case ThreadReference.THREAD_STATUS_ZOMBIE:
+                status = "terminated";
+                break;
+            case ThreadReference.THREAD_STATUS_NOT_STARTED:
+                status = "not started";
+                break;
+            default:
+                status = "unknown";
+                break;
+        }
+        return thread.isSuspended() ? status + " (suspended)" : status;
+    }
+}
@@ -0,0 +1,9 @@
+package dbg;
+
+import com.sun.jdi.ObjectReference;
+
+// Vue logique d'un objet dont la structure interne est connue (ex: ArrayList -> elementData + size)
+// Lit uniquement des champs (getValues), jamais invokeMethod qui relancerait le thread
+public interface ValueRenderer {
+    CollectionView open(ObjectReference obj);
+}
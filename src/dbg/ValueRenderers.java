@@ -0,0 +1,193 @@
+package dbg;
+
+import com.sun.jdi.ClassType;
+import com.sun.jdi.Field;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.PrimitiveValue;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.StringReference;
+import com.sun.jdi.Value;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Registre des renderers, par nom de classe
+// Une classe sans renderer utilise celui de sa superclasse la plus proche (ex: Stack -> Vector)
+// Sert aussi a afficher une valeur en une ligne (commandes CLI et inspector)
+public class ValueRenderers {
+
+    public static final int PAGE_SIZE = 100;     // Entrees lues par page
+    private static final int SUMMARY_SIZE = 10;  // Entrees montrees dans un resume sur une ligne
+
+    private static final ValueRenderers DEFAULT = new ValueRenderers();
+
+    static {
+        JdkCollectionViews.registerAll(DEFAULT);
+    }
+
+    private final Map<String, ValueRenderer> renderers = new HashMap<>();
+
+    // Registre utilise par les commandes et l'inspector (collections du JDK deja enregistrees)
+    public static ValueRenderers getDefault() {
+        return DEFAULT;
+    }
+
+    public void register(String className, ValueRenderer renderer) {
+        renderers.put(className, renderer);
+    }
+
+    // Renderer de la classe de l'objet ou de sa superclasse la plus proche, null si aucun
+    public ValueRenderer find(ObjectReference obj) {
+        ReferenceType type = obj.referenceType();
+        while (type != null) {
+            ValueRenderer renderer = renderers.get(type.name());
+            if (renderer != null) {
+                return renderer;
+            }
+            type = type instanceof ClassType ? ((ClassType) type).superclass() : null;
+        }
+        return null;
+    }
+
+    // Vue logique de l'objet, null s'il n'a pas de renderer (ou si sa structure n'est pas reconnue)
+    public CollectionView open(Value value) {
+        if (!(value instanceof ObjectReference) || value instanceof StringReference) {
+            return null;
+        }
+        ValueRenderer renderer = find((ObjectReference) value);
+        if (renderer == null) {
+            return null;
+        }
+        try {
+            return renderer.open((ObjectReference) value);
+        } catch (RuntimeException e) {
+            return null;  // Version du JDK avec d'autres champs internes : affichage brut
+        }
+    }
+
+    // Une valeur sur une ligne : chaines entre guillemets (seul le debut est lu), wrappers (Integer...) par leur champ value,
+    // collections par leur taille et leurs premiers elements. Une lecture qui echoue (objet collecte, collection
+    // modifiee par un thread qui tourne...) donne l'affichage brut suivi de la cause, jamais une exception
+    public String format(Value value) {
+        if (value == null) {
+            return "null";
+        }
+        try {
+            if (value instanceof StringReference) {
+                return StringPreview.of((StringReference) value, StringPreview.DEFAULT_LIMIT).toDisplay();
+            }
+            if (value instanceof ObjectReference) {
+                ObjectReference obj = (ObjectReference) value;
+                Value boxed = boxedValue(obj);
+                if (boxed != null) {
+                    return boxed.toString();
+                }
+                CollectionView view = open(obj);
+                if (view != null) {
+                    return summary(obj, view);
+                }
+            }
+            return value.toString();
+        } catch (RuntimeException e) {
+            return unreadable(value, e);
+        }
+    }
+
+    // Ex: ArrayList(size=3) [1, 2, 3] ou HashMap(size=1) {"a"=1}
+    public String summary(ObjectReference obj, CollectionView view) {
+        try {
+            return readSummary(obj, view);
+        } catch (RuntimeException e) {
+            return unreadable(obj, e);
+        }
+    }
+
+    // Affichage brut d'une valeur qu'on n'a pas pu lire (ex: "instance of java.util.ArrayList(id=42) <ObjectCollectedException>")
+    private static String unreadable(Value value, RuntimeException e) {
+        String raw;
+        try {
+            raw = value.toString();
+        } catch (RuntimeException again) {
+            raw = "?";
+        }
+        return raw + " <" + e.getClass().getSimpleName() + ">";
+    }
+
+    private String readSummary(ObjectReference obj, CollectionView view) {
+        StringBuilder sb = new StringBuilder();
+        String typeName = obj.referenceType().name();
+        sb.append(typeName.substring(typeName.lastIndexOf('.') + 1))
+          .append("(size=").append(view.size()).append(") ")
+          .append(view.isMap() ? "{" : "[");
+
+        List<CollectionView.Entry> entries = view.entries(0, SUMMARY_SIZE);
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            CollectionView.Entry entry = entries.get(i);
+            if (view.isMap()) {
+                sb.append(formatElement(entry.key)).append("=");
+            }
+            sb.append(formatElement(entry.value));
+        }
+        if (view.size() > entries.size()) {
+            sb.append(", ...");
+        }
+        return sb.append(view.isMap() ? "}" : "]").toString();
+    }
+
+    // Element d'une collection : pas de resume imbrique (une seule ligne, peu de lectures)
+    private String formatElement(Value value) {
+        if (value instanceof ObjectReference && !(value instanceof StringReference)) {
+            Value boxed = boxedValue((ObjectReference) value);
+            return boxed != null ? boxed.toString() : value.toString();
+        }
+        return format(value);
+    }
+
+    // Valeur primitive d'un Integer, Long, Double... (champ value), null pour les autres objets
+    public static Value boxedValue(ObjectReference obj) {
+        String name = obj.referenceType().name();
+        if (!name.startsWith("java.lang.")) {
+            return null;
+        }
+        switch (name) {
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Double":
+            case "java.lang.Float":
+            case "java.lang.Short":
+            case "java.lang.Byte":
+            case "java.lang.Character":
+            case "java.lang.Boolean":
+                Value value = read(obj, "value")[0];
+                return value instanceof PrimitiveValue ? value : null;
+            default:
+                return null;
+        }
+    }
+
+    // Lit plusieurs champs d'un objet en un seul getValues
+    // IllegalArgumentException si un champ n'existe pas (layout different de celui attendu)
+    public static Value[] read(ObjectReference obj, String... names) {
+        ReferenceType type = obj.referenceType();
+        List<Field> fields = new ArrayList<>();
+        for (String name : names) {
+            Field field = type.fieldByName(name);
+            if (field == null) {
+                throw new IllegalArgumentException("no field " + name + " in " + type.name());
+            }
+            fields.add(field);
+        }
+
+        Map<Field, Value> values = obj.getValues(fields);
+        Value[] result = new Value[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = values.get(fields.get(i));
+        }
+        return result;
+    }
+}
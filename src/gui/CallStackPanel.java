@@ -1,17 +1,26 @@
 package gui;
 
-import com.sun.jdi.StackFrame;
+import dbg.StackRow;
 
 import javax.swing.*;
+import javax.swing.border.TitledBorder;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.List;
 
 // Panneau qui affiche la pile d'appels (call stack)
+// - seules les premieres lignes sont lues a l'arret ; la suite est demandee quand on arrive en bas
+// - les recursions sont repliees en une ligne ("[12..4810] fib x 4799"), double-clic pour deplier
 public class CallStackPanel extends JPanel {
 
-    private JList<String> stackList;
-    private DefaultListModel<String> listModel;
-    private List<StackFrame> frames;
+    private JList<StackRow> stackList;
+    private DefaultListModel<StackRow> listModel;
+    private JScrollPane scrollPane;
+    private int frameCount;
+    private int selectedFrame;
+    private boolean loading;   // Suite de la pile demandee, pas encore arrivee
+    private boolean updating;  // Selection faite par le panneau, pas par un clic
     private DebuggerGUI debuggerGUI;
 
     public CallStackPanel(DebuggerGUI gui) {
@@ -24,49 +33,114 @@ public class CallStackPanel extends JPanel {
         stackList.setFont(new Font("Monospaced", Font.PLAIN, 12));
         stackList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
-        // Clic sur une frame = change la frame selectionnee
+        // Clic sur une ligne = change la frame selectionnee (premiere frame d'une recursion repliee)
         stackList.addListSelectionListener(e -> {
-            if (!e.getValueIsAdjusting() && frames != null) {
-                int index = stackList.getSelectedIndex();
-                if (index >= 0 && index < frames.size()) {
-                    debuggerGUI.onFrameSelected(frames.get(index));
+            if (!e.getValueIsAdjusting() && !updating) {
+                StackRow row = stackList.getSelectedValue();
+                if (row != null) {
+                    selectedFrame = row.getFrom();
+                    debuggerGUI.onFrameSelected(selectedFrame);
                 }
             }
         });
 
-        add(new JScrollPane(stackList), BorderLayout.CENTER);
+        // Double-clic sur une recursion repliee = une ligne par frame
+        stackList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    StackRow row = stackList.getSelectedValue();
+                    if (row != null && row.isCollapsed()) {
+                        debuggerGUI.onStackRowExpanded(row, true);
+                    }
+                }
+            }
+        });
+
+        scrollPane = new JScrollPane(stackList);
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> loadMoreIfNeeded());
+        add(scrollPane, BorderLayout.CENTER);
         setPreferredSize(new Dimension(250, 150));
     }
 
-    // Met a jour l'affichage avec la nouvelle pile
-    public void updateStack(List<StackFrame> stackFrames) {
-        this.frames = stackFrames;
-        listModel.clear();
+    // Met a jour l'affichage avec la nouvelle pile (lignes deja formatees hors EDT)
+    public void updateStack(List<StackRow> rows, int frameCount, int selectedIndex) {
+        this.frameCount = frameCount;
+        this.selectedFrame = selectedIndex;
+        loading = false;
+        setTitle();
 
-        if (stackFrames == null || stackFrames.isEmpty()) {
-            listModel.addElement("(empty)");
-            return;
+        updating = true;
+        try {
+            listModel.clear();
+            listModel.addAll(rows);
+            // Selectionne la frame deja affichee par la vue (la premiere en general)
+            selectRowOf(selectedFrame);
+        } finally {
+            updating = false;
         }
+        // Liste plus courte que la zone visible : pas de defilement pour declencher la suite
+        SwingUtilities.invokeLater(this::loadMoreIfNeeded);
+    }
 
-        for (int i = 0; i < stackFrames.size(); i++) {
-            StackFrame frame = stackFrames.get(i);
-            String entry = String.format("[%d] %s.%s:%d",
-                    i,
-                    frame.location().declaringType().name(),
-                    frame.location().method().name(),
-                    frame.location().lineNumber()
-            );
-            listModel.addElement(entry);
+    // Remplace une ligne par les lignes lues a sa place (suite de la pile ou recursion depliee)
+    public void replaceRow(StackRow row, List<StackRow> rows) {
+        int index = listModel.indexOf(row);
+        loading = false;
+        if (index < 0) {
+            return;  // Pile deja remplacee par un autre arret
+        }
+        updating = true;
+        try {
+            listModel.remove(index);
+            listModel.addAll(index, rows);
+            selectRowOf(selectedFrame);
+        } finally {
+            updating = false;
         }
+        SwingUtilities.invokeLater(this::loadMoreIfNeeded);
+    }
 
-        // Selectionne la premiere frame par defaut
-        if (!listModel.isEmpty()) {
-            stackList.setSelectedIndex(0);
+    // La lecture demandee n'a rien donne : une prochaine demande reste possible
+    public void loadFailed() {
+        loading = false;
+    }
+
+    // Derniere ligne visible et pile pas entierement lue : demande la suite
+    private void loadMoreIfNeeded() {
+        if (loading || listModel.isEmpty()) {
+            return;
+        }
+        StackRow last = listModel.lastElement();
+        if (last.getTo() < frameCount - 1 && stackList.getLastVisibleIndex() >= listModel.size() - 1) {
+            loading = true;
+            // Une recursion ouverte ("[1..199+]") est prolongee, sinon on repart du debut de la derniere ligne
+            debuggerGUI.onStackRowExpanded(last, false);
         }
     }
 
+    private void selectRowOf(int frame) {
+        for (int i = 0; i < listModel.size(); i++) {
+            StackRow row = listModel.get(i);
+            if (row.getFrom() <= frame && frame <= row.getTo()) {
+                stackList.setSelectedIndex(i);
+                return;
+            }
+        }
+        stackList.clearSelection();
+    }
+
+    private void setTitle() {
+        ((TitledBorder) getBorder()).setTitle(frameCount > 0
+                ? "CALL STACK (" + frameCount + (frameCount == 1 ? " frame)" : " frames)")
+                : "CALL STACK");
+        repaint();
+    }
+
     public void clear() {
         listModel.clear();
-        frames = null;
+        frameCount = 0;
+        loading = false;
+        setTitle();
     }
 }
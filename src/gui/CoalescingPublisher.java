@@ -0,0 +1,62 @@
+package gui;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+// Transmet des valeurs a un consommateur en ne gardant que la plus recente
+// Si plusieurs valeurs arrivent avant que le consommateur soit passe, seule la derniere est traitee
+// (les arrets intermediaires d'un step rapide ne sont jamais affiches)
+// Au plus une tache est en attente dans l'executor (EDT ou worker) : pas d'inondation de la file
+public class CoalescingPublisher<T> {
+
+    private final Executor executor;
+    private final Consumer<T> consumer;
+    private final BinaryOperator<T> merge;   // (valeur remplacee, nouvelle valeur) -> valeur gardee
+    private final AtomicReference<T> latest = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public CoalescingPublisher(Executor executor, Consumer<T> consumer) {
+        this(executor, consumer, (previous, next) -> next);
+    }
+
+    public CoalescingPublisher(Executor executor, Consumer<T> consumer, BinaryOperator<T> merge) {
+        this.executor = executor;
+        this.consumer = consumer;
+        this.merge = merge;
+    }
+
+    // Remplace la valeur en attente (appelable depuis n'importe quel thread)
+    public void offer(T value) {
+        T previous = latest.getAndUpdate(current -> current == null ? value : merge.apply(current, value));
+        if (previous != null) {
+            dropped.incrementAndGet();
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    // Oublie la valeur en attente (ex: le programme repart)
+    public void clear() {
+        latest.set(null);
+    }
+
+    // Nombre de valeurs remplacees avant d'avoir ete traitees
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void drain() {
+        // Remis a faux avant de lire : une valeur qui arrive pendant le traitement replanifie une tache
+        scheduled.set(false);
+        T value = latest.getAndSet(null);
+        if (value != null) {
+            consumer.accept(value);
+        }
+    }
+}
@@ -10,6 +10,9 @@ public class CommandPanel extends JPanel {
     private JButton stepOverBtn;
     private JButton continueBtn;
     private JButton stopBtn;
+    private JCheckBox threadOnlyBox;
+    private JToggleButton animateBtn;
+    private JSpinner animateRate;
     private DebuggerGUI debuggerGUI;
 
     public CommandPanel(DebuggerGUI gui) {
@@ -19,17 +22,17 @@ public class CommandPanel extends JPanel {
 
         // Bouton Step Into (entre dans les methodes)
         stepInBtn = new JButton("Step In");
-        stepInBtn.setToolTipText("Execute la prochaine instruction (entre dans les methodes)");
+        stepInBtn.setToolTipText("Execute la prochaine instruction (entre dans les methodes) - F7");
         stepInBtn.addActionListener(e -> debuggerGUI.executeCommand("step"));
 
         // Bouton Step Over (saute les methodes)
         stepOverBtn = new JButton("Step Over");
-        stepOverBtn.setToolTipText("Execute la ligne courante (sans entrer dans les methodes)");
+        stepOverBtn.setToolTipText("Execute la ligne courante (sans entrer dans les methodes) - F8");
         stepOverBtn.addActionListener(e -> debuggerGUI.executeCommand("step-over"));
 
         // Bouton Continue (jusqu'au prochain breakpoint)
         continueBtn = new JButton("Continue");
-        continueBtn.setToolTipText("Continue jusqu'au prochain breakpoint");
+        continueBtn.setToolTipText("Continue jusqu'au prochain breakpoint - F9");
         continueBtn.addActionListener(e -> debuggerGUI.executeCommand("continue"));
 
         // Bouton Stop
@@ -38,10 +41,48 @@ public class CommandPanel extends JPanel {
         stopBtn.setBackground(new Color(255, 100, 100));
         stopBtn.addActionListener(e -> debuggerGUI.stopDebugger());
 
+        // Mode de suspension : coche = seul le thread arrete est suspendu
+        threadOnlyBox = new JCheckBox("Thread only");
+        threadOnlyBox.setToolTipText("Les breakpoints et steps ne suspendent que le thread concerne");
+        threadOnlyBox.addActionListener(e -> debuggerGUI.setSuspendThreadOnly(threadOnlyBox.isSelected()));
+
+        // Animation : step into automatique, vitesse en steps par seconde
+        animateRate = new JSpinner(new SpinnerNumberModel(5, 1, 100, 1));
+        animateRate.setToolTipText("Steps par seconde en mode animation");
+        animateBtn = new JToggleButton("Animate");
+        animateBtn.setToolTipText("Step into automatique (l'affichage saute les arrets intermediaires)");
+        animateBtn.addActionListener(e -> debuggerGUI.setAnimate(
+                animateBtn.isSelected() ? (Integer) animateRate.getValue() : 0));
+        animateRate.addChangeListener(e -> {
+            if (animateBtn.isSelected()) {
+                debuggerGUI.setAnimate((Integer) animateRate.getValue());
+            }
+        });
+
         add(stepInBtn);
         add(stepOverBtn);
         add(continueBtn);
         add(stopBtn);
+        add(threadOnlyBox);
+        add(animateBtn);
+        add(animateRate);
+
+        // Raccourcis clavier : garder la touche enfoncee met les steps en file
+        // (ils passent meme quand les boutons sont desactives pendant l'execution)
+        bindKey("F7", "step");
+        bindKey("F8", "step-over");
+        bindKey("F9", "continue");
+    }
+
+    // Associe une touche a une commande du debugger
+    private void bindKey(String key, String command) {
+        getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(key), command);
+        getActionMap().put(command, new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                debuggerGUI.executeCommand(command);
+            }
+        });
     }
 
     // Active/desactive les boutons
@@ -2,15 +2,27 @@ package gui;
 
 import com.sun.jdi.StackFrame;
 import com.sun.jdi.AbsentInformationException;
+import com.sun.jdi.IncompatibleThreadStateException;
+import com.sun.jdi.Location;
+import dbg.StackRow;
+import dbg.StopState;
+import dbg.LogpointCommand;
 
 import javax.swing.*;
+import javax.swing.tree.MutableTreeNode;
 import java.awt.*;
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 // Fenetre principale du debugger graphique
 public class DebuggerGUI extends JFrame implements DebuggerListener {
 
+    private static final int MAX_SOURCE_FILES = 16;  // Fichiers sources gardes en memoire
+    private static final int STACK_ROWS = 50;        // Lignes de pile lues a la fois
+
     private SourceCodePanel sourcePanel;
     private CallStackPanel callStackPanel;
     private InspectorPanel inspectorPanel;
@@ -18,8 +30,20 @@ public class DebuggerGUI extends JFrame implements DebuggerListener {
     private CommandPanel commandPanel;
 
     private GUIScriptableDebugger debugger;
-    private StackFrame currentFrame;
-    private String sourceBasePath;
+    private volatile StopState stopState;  // Arret courant (pile et valeurs deja lues)
+
+    // Construction des vues hors EDT (un seul thread : la derniere demande gagne)
+    private final ExecutorService viewWorker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "gui-view-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CoalescingPublisher<ViewRequest> viewRequests =
+            new CoalescingPublisher<>(viewWorker, this::build, ViewRequest::merge);
+    private final CoalescingPublisher<StopView> views =
+            new CoalescingPublisher<>(SwingUtilities::invokeLater, this::publish, StopView::merge);
+    private final SourceCache sourceCache = new SourceCache(MAX_SOURCE_FILES);
+    private SourceIndex sourceIndex;  // Classes <-> fichiers sources, construit au demarrage
 
     public DebuggerGUI() {
         super("Debugger Graphique - JDI");
@@ -68,7 +92,9 @@ public class DebuggerGUI extends JFrame implements DebuggerListener {
 
     // Demarre le debugger sur une classe
     public void startDebugging(Class<?> targetClass, String sourcePath) {
-        this.sourceBasePath = sourcePath;
+        // Indexation en fond pendant le lancement de la VM (le premier arret attend sa fin)
+        sourceIndex = new SourceIndex(SourceIndex.defaultRoots(sourcePath));
+        sourceIndex.start();
 
         outputPanel.appendOutput("Starting debugger on: " + targetClass.getName() + "\n");
 
@@ -81,102 +107,134 @@ public class DebuggerGUI extends JFrame implements DebuggerListener {
         debugThread.start();
     }
 
-    // Appele quand le debugger s'arrete
+    // Appele quand le debugger s'arrete (thread JDI)
+    // Les vues sont construites par le worker, l'EDT recoit seulement le resultat ;
+    // pendant un step rapide seul le dernier arret est construit puis affiche
     @Override
-    public void onDebuggerStopped(StackFrame frame, List<StackFrame> callStack) {
-        this.currentFrame = frame;
-
-        SwingUtilities.invokeLater(() -> {
-            // Met a jour la pile d'appels
-            callStackPanel.updateStack(callStack);
+    public void onDebuggerStopped(StopState state) {
+        this.stopState = state;
+        viewRequests.offer(new ViewRequest(state, 0, true));
+    }
 
-            // Met a jour le code source
-            updateSourceCode(frame);
+    // Construit la vue demandee (worker), sauf si le thread est deja reparti
+    private void build(ViewRequest request) {
+        if (!request.state.isValid()) {
+            return;  // Un arret plus recent suivra
+        }
+        try {
+            StopView view = buildView(request.state, request.frameIndex, request.withStack);
+            if (view != null) {
+                views.offer(view);
+            }
+        } catch (Exception e) {
+            // Thread reparti pendant la lecture : la vue ne sert plus
+            // Sinon c'est une vraie erreur : l'arret reste utilisable, on le dit et on rend les boutons
+            if (request.state.isValid()) {
+                SwingUtilities.invokeLater(() -> publishError(request.state, e));
+            }
+        }
+    }
 
-            // Met a jour l'inspector
-            inspectorPanel.updateVariables(frame);
+    // Vue d'erreur (EDT) : sans elle les boutons resteraient desactives et on ne pourrait plus ni
+    // avancer ni continuer
+    private void publishError(StopState state, Exception e) {
+        if (!state.isValid()) {
+            return;
+        }
+        outputPanel.appendOutput("Error while reading the stop: " + e.getClass().getSimpleName()
+                + (e.getMessage() != null ? ": " + e.getMessage() : "") + "\n");
+        commandPanel.setButtonsEnabled(true);
+    }
 
-            // Active les boutons
-            commandPanel.setButtonsEnabled(true);
+    // Toutes les lectures JDI d'une vue (hors EDT)
+    private StopView buildView(StopState state, int frameIndex, boolean withStack)
+            throws IncompatibleThreadStateException {
+        StackFrame frame = state.getFrame(frameIndex);
+        if (frame == null) {
+            return null;
+        }
 
-            outputPanel.appendOutput(">>> Stopped at: " +
-                    frame.location().declaringType().name() + "." +
-                    frame.location().method().name() + ":" +
-                    frame.location().lineNumber() + "\n");
-        });
-    }
+        // Seules les premieres pages de la pile sont lues, la suite au defilement de la liste
+        List<StackRow> stackRows = null;
+        if (withStack) {
+            stackRows = StackRow.load(state, 0, STACK_ROWS, DebuggerGUI::formatFrame);
+        }
+        if (!state.isValid()) {
+            return null;  // Annule : le programme est reparti
+        }
 
-    // Met a jour l'affichage du code source
-    private void updateSourceCode(StackFrame frame) {
+        // Fichier source
+        Location location = frame.location();
+        String className = location.declaringType().name();
+        Path sourcePath = null;
+        SourceFile source = null;
+        String warning = null;
         try {
-            String sourceName = frame.location().sourceName();
-            String className = frame.location().declaringType().name();
-
-            // Cherche le fichier source
-            String sourcePath = findSourceFile(className, sourceName);
-            if (sourcePath != null) {
-                sourcePanel.loadSourceFile(sourcePath);
+            sourcePath = sourceIndex.find(className, location.sourceName());
+            if (sourcePath == null) {
+                warning = "Source not found for: " + className + "\n";
+            } else {
+                // Lu sur disque seulement la premiere fois (ou si le fichier a change)
+                source = sourceCache.get(sourcePath);
             }
-
-            // Surligne la ligne courante
-            sourcePanel.highlightLine(frame.location().lineNumber());
-
         } catch (AbsentInformationException e) {
-            outputPanel.appendOutput("Warning: No source info available\n");
+            warning = "Warning: No source info available\n";
+        } catch (IOException e) {
+            warning = "Error reading file: " + e.getMessage() + "\n";
         }
-    }
 
-    // Trouve le fichier source a partir du nom de classe
-    private String findSourceFile(String className, String sourceName) {
-        String sep = File.separator;
-
-        // Essaye le chemin de base + package (ex: src/dbg/JDISimpleDebuggee.java)
-        String packagePath = className.replace('.', sep.charAt(0));
-        int lastSep = packagePath.lastIndexOf(sep.charAt(0));
-        if (lastSep > 0) {
-            packagePath = packagePath.substring(0, lastSep + 1);
-        } else {
-            packagePath = "";
+        // Premier niveau de l'inspector (les enfants sont lus au depliage)
+        List<MutableTreeNode> variables = inspectorPanel.buildVariables(state.getSnapshot(frameIndex));
+        if (!state.isValid()) {
+            return null;
         }
 
-        String fullPath = sourceBasePath + sep + packagePath + sourceName;
-        System.out.println("Trying: " + fullPath);
-        File file = new File(fullPath);
-        if (file.exists()) {
-            return fullPath;
+        return new StopView(state, stackRows, state.getFrameCount(), frameIndex,
+                className + "." + location.method().name() + ":" + location.lineNumber(),
+                sourcePath, source, warning, location.lineNumber(), variables);
+    }
+
+    // Recopie une vue terminee dans les panneaux (EDT)
+    private void publish(StopView view) {
+        if (!view.state.isValid()) {
+            return;  // Le programme est reparti depuis : un arret plus recent suivra
         }
 
-        // Essaye directement dans le dossier source
-        fullPath = sourceBasePath + sep + sourceName;
-        System.out.println("Trying: " + fullPath);
-        file = new File(fullPath);
-        if (file.exists()) {
-            return fullPath;
+        // Met a jour la pile d'appels
+        if (view.stackRows != null) {
+            callStackPanel.updateStack(view.stackRows, view.frameCount, view.frameIndex);
         }
 
-        // Essaye dans un sous-dossier dbg
-        fullPath = sourceBasePath + sep + "dbg" + sep + sourceName;
-        System.out.println("Trying: " + fullPath);
-        file = new File(fullPath);
-        if (file.exists()) {
-            return fullPath;
+        // Met a jour le code source (document deja charge par le worker, rien n'est relu ici)
+        if (view.source != null) {
+            sourcePanel.showSource(view.sourcePath, view.source);
+        }
+        if (view.sourceWarning != null) {
+            outputPanel.appendOutput(view.sourceWarning);
         }
+        sourcePanel.highlightLine(view.source != null ? view.line : -1);
 
-        outputPanel.appendOutput("Source not found for: " + className + "\n");
-        return null;
+        // Met a jour l'inspector
+        inspectorPanel.showVariables(view.variables);
+
+        if (view.stackRows != null) {
+            // Active les boutons
+            commandPanel.setButtonsEnabled(true);
+            outputPanel.appendOutput(">>> Stopped at: " + view.location + "\n");
+        }
     }
 
     // Appele quand le programme affiche quelque chose
+    // Pas d'invokeLater par ligne : l'OutputPanel regroupe les ajouts et met a jour l'EDT par lots
     @Override
     public void onOutput(String text) {
-        SwingUtilities.invokeLater(() -> {
-            outputPanel.appendOutput(text);
-        });
+        outputPanel.appendOutput(text);
     }
 
     // Appele quand le programme se termine
     @Override
     public void onProgramEnded() {
+        cancelPendingViews();
         SwingUtilities.invokeLater(() -> {
             outputPanel.appendOutput("\n=== Program ended ===\n");
             commandPanel.setButtonsEnabled(false);
@@ -186,58 +244,141 @@ public class DebuggerGUI extends JFrame implements DebuggerListener {
     }
 
     // Appele quand on clique sur une frame dans la pile
-    public void onFrameSelected(StackFrame frame) {
-        this.currentFrame = frame;
-        updateSourceCode(frame);
-        inspectorPanel.updateVariables(frame);
+    // Le snapshot de chaque frame est lu une seule fois par arret (par le worker, pas sur l'EDT)
+    public void onFrameSelected(int index) {
+        if (stopState == null || !stopState.isValid()) {
+            return;
+        }
+        viewRequests.offer(new ViewRequest(stopState, index, false));
+    }
+
+    // Texte d'une frame dans la liste de la pile
+    private static String formatFrame(Location location) {
+        return location.declaringType().name() + "." + location.method().name() + ":" + location.lineNumber();
+    }
+
+    // La liste de la pile arrive en bas, ou une recursion repliee est depliee (une page a la fois) :
+    // la ligne est remplacee par les lignes suivantes (lues par le worker, les pages deja lues sont
+    // gardees par le StopState)
+    public void onStackRowExpanded(StackRow row, boolean unfold) {
+        StopState state = stopState;
+        if (state == null || !state.isValid()) {
+            callStackPanel.loadFailed();
+            return;
+        }
+        viewWorker.execute(() -> {
+            try {
+                List<StackRow> rows = unfold
+                        ? StackRow.unfold(state, row, DebuggerGUI::formatFrame)
+                        : StackRow.more(state, row, STACK_ROWS, DebuggerGUI::formatFrame);
+                SwingUtilities.invokeLater(() -> {
+                    if (state == stopState && state.isValid()) {
+                        callStackPanel.replaceRow(row, rows);
+                    }
+                });
+            } catch (IncompatibleThreadStateException | RuntimeException e) {
+                // Thread reparti, VM deconnectee... : la liste doit pouvoir redemander la suite
+                SwingUtilities.invokeLater(() -> {
+                    if (state == stopState) {
+                        callStackPanel.loadFailed();
+                        if (e instanceof RuntimeException) {
+                            publishError(state, e);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    // Le programme repart : les vues en attente ne servent plus
+    // (une construction deja commencee s'arrete d'elle-meme quand le StopState est invalide)
+    private void cancelPendingViews() {
+        viewRequests.clear();
+        views.clear();
+        inspectorPanel.cancelLoads();
     }
 
     // Execute une commande (step, continue, etc.)
     public void executeCommand(String command) {
+        if (debugger == null) return;
+
         commandPanel.setButtonsEnabled(false);
         outputPanel.appendOutput(">>> " + command + "\n");
+        cancelPendingViews();
 
-        Thread cmdThread = new Thread(() -> {
-            debugger.executeCommand(command);
-        });
-        cmdThread.start();
+        // Simple depot dans le canal de commandes, le thread JDI la recupere
+        debugger.executeCommand(command);
     }
 
-    // Ajoute un breakpoint
-    public void addBreakpoint(String sourcePath, int line) {
-        if (debugger != null) {
-            // Extrait le nom de classe du chemin complet
-            // Ex: C:\...\src\dbg\JDISimpleDebuggee.java -> dbg.JDISimpleDebuggee
-            String className = extractClassName(sourcePath);
-            outputPanel.appendOutput("Adding breakpoint: " + className + ":" + line + "\n");
-            debugger.addBreakpoint(className, line);
+    // Ajoute un breakpoint, retourne la ligne reellement utilisee (-1 si echec)
+    public int addBreakpoint(Path sourcePath, int line) {
+        if (debugger == null) {
+            return -1;
+        }
+        String className = classNameOf(sourcePath);
+        if (className == null) {
+            return -1;
+        }
+        outputPanel.appendOutput("Adding breakpoint: " + className + ":" + line + "\n");
+        return debugger.addBreakpoint(className, line);
+    }
+
+    // Ajoute un logpoint, retourne la ligne reellement utilisee (-1 si echec)
+    public int addLogpoint(Path sourcePath, int line, String message) {
+        if (debugger == null) {
+            return -1;
+        }
+        String className = classNameOf(sourcePath);
+        if (className == null) {
+            return -1;
+        }
+        outputPanel.appendOutput("Adding logpoint: " + className + ":" + line + "\n");
+        return debugger.addLogpoint(className, line, message, LogpointCommand.DEFAULT_MAX_PER_SECOND);
+    }
+
+    // Supprime un breakpoint
+    public void removeBreakpoint(Path sourcePath, int line) {
+        String className = debugger != null ? classNameOf(sourcePath) : null;
+        if (className != null) {
+            outputPanel.appendOutput("Removing breakpoint: " + className + ":" + line + "\n");
+            debugger.removeBreakpoint(className, line);
         }
     }
 
-    // Extrait le nom de classe depuis un chemin de fichier
-    // Ex: C:\Users\...\src\dbg\MaClasse.java -> dbg.MaClasse
-    private String extractClassName(String filePath) {
-        // Cherche "src" dans le chemin
-        String normalizedPath = filePath.replace("\\", "/");
-        int srcIndex = normalizedPath.indexOf("/src/");
+    // Animation : step into automatique a stepsPerSecond par seconde (0 = arret)
+    public void setAnimate(int stepsPerSecond) {
+        if (debugger != null) {
+            outputPanel.appendOutput(stepsPerSecond > 0
+                    ? ">>> animate (" + stepsPerSecond + " steps/s)\n" : ">>> animate off\n");
+            debugger.setAnimate(stepsPerSecond);
+        }
+    }
 
-        String relativePath;
-        if (srcIndex >= 0) {
-            // Prend tout apres "/src/"
-            relativePath = normalizedPath.substring(srcIndex + 5);
-        } else {
-            // Sinon prend juste le nom du fichier
-            int lastSlash = normalizedPath.lastIndexOf("/");
-            relativePath = (lastSlash >= 0) ? normalizedPath.substring(lastSlash + 1) : normalizedPath;
+    // Copie de toute la sortie dans un fichier (avec rotation)
+    public void setOutputSpill(Path path, long maxBytes, int keep) {
+        try {
+            outputPanel.setSpillFile(path, maxBytes, keep);
+            outputPanel.appendOutput("Output also written to " + path + "\n");
+        } catch (IOException e) {
+            outputPanel.appendOutput("Cannot write output to " + path + ": " + e.getMessage() + "\n");
         }
+    }
 
-        // Enleve .java
-        if (relativePath.endsWith(".java")) {
-            relativePath = relativePath.substring(0, relativePath.length() - 5);
+    // Mode de suspension : seulement le thread qui s'arrete, ou toute la VM
+    public void setSuspendThreadOnly(boolean threadOnly) {
+        if (debugger != null) {
+            debugger.setSuspendThreadOnly(threadOnly);
         }
+    }
 
-        // Remplace / par . pour avoir le nom de classe complet
-        return relativePath.replace("/", ".");
+    // Classe d'un fichier affiche (lecture dans l'index des sources), null si inconnu
+    // Ex: .../src/dbg/MaClasse.java -> dbg.MaClasse
+    private String classNameOf(Path sourcePath) {
+        String className = sourceIndex != null ? sourceIndex.classNameOf(sourcePath) : null;
+        if (className == null) {
+            outputPanel.appendOutput("Unknown source file: " + sourcePath + "\n");
+        }
+        return className;
     }
 
     // Arrete le debugger
@@ -248,4 +389,25 @@ public class DebuggerGUI extends JFrame implements DebuggerListener {
         outputPanel.appendOutput("Debugger stopped.\n");
         commandPanel.setButtonsEnabled(false);
     }
+
+    // Demande de vue : un arret (avec la pile) ou une autre frame du meme arret
+    private static class ViewRequest {
+        final StopState state;
+        final int frameIndex;
+        final boolean withStack;
+
+        ViewRequest(StopState state, int frameIndex, boolean withStack) {
+            this.state = state;
+            this.frameIndex = frameIndex;
+            this.withStack = withStack;
+        }
+
+        // Une demande d'arret remplacee par un clic sur une frame : la pile reste a construire
+        static ViewRequest merge(ViewRequest previous, ViewRequest next) {
+            if (previous.withStack && !next.withStack && previous.state == next.state) {
+                return new ViewRequest(next.state, next.frameIndex, true);
+            }
+            return next;
+        }
+    }
 }
@@ -1,13 +1,14 @@
 package gui;
 
-import com.sun.jdi.StackFrame;
-import java.util.List;
+import dbg.StopState;
 
 // Interface pour recevoir les evenements du debugger
 public interface DebuggerListener {
 
     // Appele quand le debugger s'arrete (breakpoint ou step)
-    void onDebuggerStopped(StackFrame currentFrame, List<StackFrame> callStack);
+    // state : acces a la pile et aux valeurs de l'arret. Rien n'est lu d'avance : les vues les lisent a la demande
+    // sur le thread de travail (viewWorker), et l'etat est invalide a la reprise du thread
+    void onDebuggerStopped(StopState state);
 
     // Appele quand le programme debugge affiche quelque chose
     void onOutput(String text);
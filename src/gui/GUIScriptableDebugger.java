@@ -5,13 +5,23 @@ import com.sun.jdi.connect.Connector;
 import com.sun.jdi.connect.LaunchingConnector;
 import com.sun.jdi.event.*;
 import com.sun.jdi.request.*;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import dbg.BreakpointInfo;
+import dbg.BreakpointRegistry;
+import dbg.ClassIndex;
+import dbg.StopState;
+import dbg.LineTable;
+import dbg.LogBuffer;
+import dbg.LogTemplate;
+import dbg.ProcessOutputPump;
+import dbg.StepFilters;
+import dbg.ThreadStop;
+
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 // Version du debugger adaptee pour l'interface graphique
 public class GUIScriptableDebugger {
@@ -22,12 +32,29 @@ public class GUIScriptableDebugger {
     private DebuggerListener listener;
     private volatile boolean running = true;
     private volatile boolean waitingForCommand = false;
-    private volatile String pendingCommand = null;
-    private List<BreakpointRequest> breakpoints;
+    private volatile BreakpointRegistry breakpoints;  // Partage avec le thread Swing
+    private volatile ClassIndex classIndex;  // Classes chargees (pas de scan de vm.allClasses())
+    private volatile StepFilters stepFilters;
+    private ClassPrepareRequest initialRequest;
+    private LogBuffer logOutput;  // Messages des logpoints, envoyes par lots a l'OutputPanel
+    private ProcessOutputPump programOutput;  // stdout/stderr du programme, vides en continu
+    private volatile int suspendPolicy = EventRequest.SUSPEND_ALL;  // SUSPEND_EVENT_THREAD : "Thread only"
+    private StopState stopState;  // Cache de l'arret courant (celui du thread qui a le focus)
+    private final Map<ThreadReference, ThreadStop> stoppedThreads = new LinkedHashMap<>();  // Ordre d'arrivee
+    private long suspensionEpoch;
+
+    // Canal de commandes entre Swing et le thread JDI (ordre conserve, attente bloquante)
+    private static final int MAX_PENDING_COMMANDS = 32;
+    private static final String STOP_COMMAND = "__stop__";
+    private static final long EVENT_POLL_MS = 50;  // Attente max d'une commande avant de relire les evenements
+    private final BlockingQueue<String> commands = new LinkedBlockingQueue<>(MAX_PENDING_COMMANDS);
+
+    // Animation : step into automatique toutes les animateInterval ms (0 = arretee)
+    private static final String ANIMATE_COMMAND = "__animate__";
+    private volatile long animateInterval;
 
     public GUIScriptableDebugger(DebuggerListener listener) {
         this.listener = listener;
-        this.breakpoints = new ArrayList<>();
     }
 
     // Connecte et lance la VM
@@ -54,12 +81,19 @@ public class GUIScriptableDebugger {
 
         try {
             vm = connectAndLaunchVM();
+            programOutput = new ProcessOutputPump(vm.process(), listener::onOutput);
+            programOutput.start();
+            classIndex = new ClassIndex(vm);
+            breakpoints = new BreakpointRegistry(vm.eventRequestManager(), classIndex);
+            stepFilters = new StepFilters(vm, classIndex);
+            logOutput = new LogBuffer(4096, listener::onOutput);
+            breakpoints.setLogOutput(logOutput);
             listener.onOutput("VM connected successfully\n");
 
             // Prepare la capture de la classe
-            ClassPrepareRequest cpr = vm.eventRequestManager().createClassPrepareRequest();
-            cpr.addClassFilter(debugClass.getName());
-            cpr.enable();
+            initialRequest = vm.eventRequestManager().createClassPrepareRequest();
+            initialRequest.addClassFilter(debugClass.getName());
+            initialRequest.enable();
             listener.onOutput("Waiting for class to load...\n");
 
             // Lance la boucle d'evenements
@@ -75,39 +109,28 @@ public class GUIScriptableDebugger {
     }
 
     // Boucle principale des evenements
+    // Comme le CLI : un thread arrete est mis en file (ThreadStop) ; l'interface montre celui qui a le focus
+    // et, quand il repart, passe au suivant en file (plusieurs threads arretes en mode "Thread only")
     private void eventLoop() {
         EventQueue queue = vm.eventQueue();
 
         while (running) {
             try {
-                EventSet events = queue.remove();
-                if (events == null) continue;
-
-                boolean shouldResume = true;
-
-                for (Event event : events) {
-                    listener.onOutput("Event: " + event.getClass().getSimpleName() + "\n");
-
-                    if (event instanceof ClassPrepareEvent) {
-                        handleClassPrepare((ClassPrepareEvent) event);
-                    }
-                    else if (event instanceof BreakpointEvent) {
-                        handleBreakpoint((BreakpointEvent) event);
-                        shouldResume = false; // Ne pas reprendre, on attend une commande
-                    }
-                    else if (event instanceof StepEvent) {
-                        handleStep((StepEvent) event);
-                        shouldResume = false; // Ne pas reprendre, on attend une commande
-                    }
-                    else if (event instanceof VMDeathEvent || event instanceof VMDisconnectEvent) {
-                        running = false;
-                        listener.onProgramEnded();
-                        return;
-                    }
+                // Aucun thread arrete : on attend le prochain evenement
+                if (stoppedThreads.isEmpty()) {
+                    dispatch(queue.remove());
+                    continue;
                 }
 
-                if (running && shouldResume) {
-                    events.resume();
+                ThreadStop stop = focusedStop();
+                currentThread = stop.getThread();
+                stopState = stop.getState();
+                notifyStop();
+
+                // Relance uniquement le thread qui a le focus (tous en mode "all threads")
+                if (waitForCommand()) {
+                    stoppedThreads.remove(currentThread);
+                    stop.resume();
                 }
 
             } catch (InterruptedException e) {
@@ -121,137 +144,196 @@ public class GUIScriptableDebugger {
         }
     }
 
-    // Classe prete - on pose le breakpoint initial
+    // Traite un EventSet : soit il arrete un thread (mis en file), soit il est repris tout de suite
+    private void dispatch(EventSet events) {
+        LocatableEvent stopEvent = null;
+
+        for (Event event : events) {
+            // Le suivi des classes est silencieux
+            if (event instanceof ClassPrepareEvent && classIndex.isTrackingRequest(event.request())) {
+                classIndex.add(((ClassPrepareEvent) event).referenceType());
+                continue;
+            }
+
+            // Breakpoints once/count/logpoints : le registre decide s'il faut s'arreter
+            // (un passage ignore repart sans rien afficher)
+            if (event instanceof BreakpointEvent && !breakpoints.onHit((BreakpointEvent) event)) {
+                continue;
+            }
+
+            listener.onOutput("Event: " + event.getClass().getSimpleName() + "\n");
+
+            if (event instanceof ClassPrepareEvent) {
+                handleClassPrepare((ClassPrepareEvent) event);
+            }
+            else if (event instanceof BreakpointEvent) {
+                listener.onOutput("Breakpoint hit in thread " + ((BreakpointEvent) event).thread().name() + "\n");
+                if (stopEvent == null) {
+                    stopEvent = (BreakpointEvent) event;
+                }
+            }
+            else if (event instanceof StepEvent) {
+                if (handleStep((StepEvent) event) && stopEvent == null) {
+                    stopEvent = (StepEvent) event;
+                }
+            }
+            else if (event instanceof VMDeathEvent || event instanceof VMDisconnectEvent) {
+                logOutput.close();
+                programOutput.close();
+                running = false;
+                listener.onProgramEnded();
+                return;
+            }
+        }
+
+        // Un seul arret par EventSet ; sinon une seule reprise (seulement les threads qu'il a suspendus)
+        if (stopEvent == null) {
+            events.resume();
+            return;
+        }
+
+        boolean queued = !stoppedThreads.isEmpty();
+        stoppedThreads.put(stopEvent.thread(), new ThreadStop(stopEvent, events, ++suspensionEpoch));
+        if (queued) {
+            listener.onOutput("Thread " + stopEvent.thread().name() + " stopped at " + stopEvent.location()
+                    + " (queued, shown when the current thread resumes)\n");
+        }
+    }
+
+    // Recupere sans attendre les evenements deja arrives
+    private void pollEvents() throws InterruptedException {
+        EventSet events;
+        while (running && (events = vm.eventQueue().remove(1)) != null) {
+            dispatch(events);
+        }
+    }
+
+    // Thread a montrer : celui qui a deja le focus s'il est toujours arrete, sinon le premier en file
+    private ThreadStop focusedStop() {
+        ThreadStop stop = currentThread != null ? stoppedThreads.get(currentThread) : null;
+        if (stop != null) {
+            return stop;
+        }
+        ThreadStop next = stoppedThreads.values().iterator().next();
+        if (currentThread != null) {
+            // Le thread precedent a ete relance : on passe au suivant en file
+            listener.onOutput("Switching to thread " + next.getThread().name() + " at "
+                    + next.getEvent().location() + "\n");
+        }
+        return next;
+    }
+
+    // Classe prete - on pose les breakpoints en attente et le breakpoint initial
     private void handleClassPrepare(ClassPrepareEvent event) {
         try {
             ReferenceType refType = event.referenceType();
+            classIndex.add(refType);
             listener.onOutput("Class loaded: " + refType.name() + "\n");
 
-            List<Location> locations = refType.locationsOfLine(6);
-            if (!locations.isEmpty()) {
-                BreakpointRequest bp = vm.eventRequestManager().createBreakpointRequest(locations.get(0));
+            for (BreakpointInfo info : breakpoints.resolvePending(refType)) {
+                listener.onOutput("Pending breakpoint resolved: " + info + "\n");
+                if (!breakpoints.hasPending(info.getFilename())) {
+                    classIndex.unwatch(info.getFilename());
+                }
+            }
+
+            if (event.request() != initialRequest) {
+                return;
+            }
+
+            // Ligne 6, ou la ligne executable la plus proche
+            LineTable table = classIndex.lineTable(refType);
+            int line = table.nearestLine(6);
+            if (line < 0) {
+                listener.onOutput("Warning: Could not find line 6\n");
+                return;
+            }
+            for (Location location : table.locationsOf(line)) {
+                BreakpointRequest bp = vm.eventRequestManager().createBreakpointRequest(location);
                 bp.enable();
+            }
+            if (line == 6) {
                 listener.onOutput("Breakpoint set at line 6\n");
             } else {
-                listener.onOutput("Warning: Could not find line 6\n");
-                // Essaie de mettre un breakpoint sur la premiere ligne disponible
-                List<Location> allLocs = refType.allLineLocations();
-                if (!allLocs.isEmpty()) {
-                    BreakpointRequest bp = vm.eventRequestManager().createBreakpointRequest(allLocs.get(0));
-                    bp.enable();
-                    listener.onOutput("Breakpoint set at line " + allLocs.get(0).lineNumber() + " instead\n");
-                }
+                listener.onOutput("Breakpoint set at line " + line + " instead\n");
             }
         } catch (AbsentInformationException e) {
             listener.onOutput("ERROR: No debug info! Recompile with: javac -g\n");
         }
     }
 
-    // Breakpoint atteint
-    private void handleBreakpoint(BreakpointEvent event) {
-        listener.onOutput("Breakpoint hit!\n");
-        currentThread = event.thread();
-        notifyStop();
-        waitForCommand();
-        // Apres la commande, on reprend
-        vm.resume();
-    }
-
-    // Step termine
-    private void handleStep(StepEvent event) {
-        // Desactive le step request
+    // Step termine : faux si on continue tout seul jusqu'au vrai code
+    private boolean handleStep(StepEvent event) {
+        // Supprime le step request termine
         StepRequest sr = (StepRequest) event.request();
-        sr.disable();
-        vm.eventRequestManager().deleteEventRequest(sr);
-
-        currentThread = event.thread();
-
-        // Verifie si on est dans du code JDK - si oui, continue automatiquement
-        String className = event.location().declaringType().name();
-        if (isJdkClass(className)) {
-            // Re-cree un step request pour continuer jusqu'au code utilisateur
-            listener.onOutput("(skipping JDK: " + className + ")\n");
-            StepRequest newSr = vm.eventRequestManager().createStepRequest(
-                currentThread, StepRequest.STEP_LINE, sr.depth());
-            newSr.addClassExclusionFilter("java.*");
-            newSr.addClassExclusionFilter("javax.*");
-            newSr.addClassExclusionFilter("sun.*");
-            newSr.addClassExclusionFilter("jdk.*");
-            newSr.addClassExclusionFilter("com.sun.*");
-            newSr.enable();
-            vm.resume();
-            return;
-        }
+        breakpoints.deleteRequest(sr);
 
-        notifyStop();
-        waitForCommand();
-        // Apres la commande, on reprend
-        vm.resume();
-    }
-
-    // Verifie si c'est une classe du JDK
-    private boolean isJdkClass(String className) {
-        return className.startsWith("java.") ||
-               className.startsWith("javax.") ||
-               className.startsWith("sun.") ||
-               className.startsWith("jdk.") ||
-               className.startsWith("com.sun.");
+        // Arrive dans un bridge ou une classe $$Lambda : on continue jusqu'au vrai code
+        // (le JDK est deja exclu par les filtres de la StepRequest)
+        if (stepFilters.shouldSkip(event.location())) {
+            stepFilters.createStepRequest(event.thread(), StepRequest.STEP_INTO, sr.suspendPolicy());
+            return false;
+        }
+        return true;
     }
 
     // Notifie l'interface qu'on s'est arrete
+    // Seule la profondeur de la pile est lue ici (les frames le sont par pages) ; les variables sont
+    // lues par l'interface seulement pour les arrets qu'elle affiche (pas pour ceux sautes en animation)
     private void notifyStop() {
         try {
-            if (currentThread != null && currentThread.frameCount() > 0) {
-                StackFrame frame = currentThread.frame(0);
-                List<StackFrame> stack = currentThread.frames();
-                listener.onDebuggerStopped(frame, stack);
-                readProcessOutput();
+            if (stopState.getFrameCount() > 0) {
+                programOutput.flush();
+                listener.onDebuggerStopped(stopState);
             }
         } catch (IncompatibleThreadStateException e) {
             listener.onOutput("Error getting frame: " + e.getMessage() + "\n");
         }
     }
 
-    // Lit la sortie du programme debugge
-    private void readProcessOutput() {
-        try {
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(vm.process().getInputStream()));
-
-            while (reader.ready()) {
-                String line = reader.readLine();
-                if (line != null) {
-                    listener.onOutput("[Program] " + line + "\n");
-                }
-            }
-        } catch (IOException e) {
-            // ignore
-        }
-    }
-
     // Attend une commande de l'interface
-    private void waitForCommand() {
+    // Bloque sur le canal par tranches de EVENT_POLL_MS : pas d'attente active, les commandes envoyees
+    // pendant que la VM tourne sont traitees dans l'ordre au prochain arret, et entre deux tranches
+    // les evenements deja arrives sont lus (autres threads arretes en mode "Thread only" : mis en file)
+    // En mode animation, un step into est fait tout seul si aucune commande n'arrive avant l'intervalle
+    // Retourne vrai si le thread courant doit repartir (step ou continue)
+    private boolean waitForCommand() throws InterruptedException {
         waitingForCommand = true;
-        pendingCommand = null;
+        long idleSince = System.currentTimeMillis();
 
         while (waitingForCommand && running) {
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                break;
+            long interval = animateInterval;
+            String cmd = commands.poll(interval > 0 ? Math.min(interval, EVENT_POLL_MS) : EVENT_POLL_MS,
+                    TimeUnit.MILLISECONDS);
+            if (cmd == null) {
+                pollEvents();
+                if (interval > 0 && System.currentTimeMillis() - idleSince >= interval) {
+                    doStep(StepRequest.STEP_INTO);
+                }
+                continue;
             }
 
-            if (pendingCommand != null) {
-                String cmd = pendingCommand;
-                pendingCommand = null;
-                processCommand(cmd);
+            if (STOP_COMMAND.equals(cmd)) {
+                return false;
             }
+            processCommand(cmd);
+            idleSince = System.currentTimeMillis();
         }
+        return !waitingForCommand && running;
     }
 
-    // Execute une commande depuis l'interface
+    // Demarre l'animation (stepsPerSecond steps par seconde au plus) ou l'arrete (0)
+    // L'interface n'affiche que le dernier arret disponible : elle ne ralentit pas l'animation
+    public void setAnimate(int stepsPerSecond) {
+        animateInterval = stepsPerSecond > 0 ? Math.max(1, 1000 / stepsPerSecond) : 0;
+        commands.offer(ANIMATE_COMMAND);
+    }
+
+    // Execute une commande depuis l'interface (non bloquant, appelable depuis l'EDT)
     public void executeCommand(String command) {
-        pendingCommand = command;
+        if (!commands.offer(command)) {
+            listener.onOutput("Command queue full, ignoring: " + command + "\n");
+        }
     }
 
     // Traite une commande
@@ -266,6 +348,9 @@ public class GUIScriptableDebugger {
             case "continue":
                 doContinue();
                 break;
+            case ANIMATE_COMMAND:
+                // Reveille l'attente pour appliquer le nouvel intervalle (le step suit au timeout)
+                break;
             default:
                 listener.onOutput("Unknown command: " + command + "\n");
         }
@@ -275,22 +360,12 @@ public class GUIScriptableDebugger {
     private void doStep(int depth) {
         if (currentThread == null) return;
 
-        // Supprime les anciens step requests
-        for (StepRequest sr : vm.eventRequestManager().stepRequests()) {
-            sr.disable();
-            vm.eventRequestManager().deleteEventRequest(sr);
-        }
+        // Supprime les anciens step requests de ce thread
+        breakpoints.deleteStepRequests(currentThread);
 
-        // Cree un nouveau step request avec filtres pour ignorer le JDK
-        StepRequest sr = vm.eventRequestManager().createStepRequest(
-            currentThread, StepRequest.STEP_LINE, depth);
-        // Exclut les classes JDK pour ne pas s'arreter dans le code systeme
-        sr.addClassExclusionFilter("java.*");
-        sr.addClassExclusionFilter("javax.*");
-        sr.addClassExclusionFilter("sun.*");
-        sr.addClassExclusionFilter("jdk.*");
-        sr.addClassExclusionFilter("com.sun.*");
-        sr.enable();
+        // Exclusions (JDK...) sur la request ; step into -> step over si la ligne
+        // n'appelle que des getters/setters/constructeurs simples
+        stepFilters.createStepRequest(currentThread, stepFilters.chooseDepth(currentThread, depth), suspendPolicy);
 
         waitingForCommand = false;
     }
@@ -301,30 +376,82 @@ public class GUIScriptableDebugger {
     }
 
     // Ajoute un breakpoint
-    public void addBreakpoint(String className, int line) {
+    // Si la classe n'est pas encore chargee, il sera pose a son chargement
+    // Retourne la ligne reellement utilisee (ligne executable la plus proche), -1 si echec
+    public int addBreakpoint(String className, int line) {
+        if (breakpoints == null) return -1;
+        return arm(new BreakpointInfo(className, line, null));
+    }
+
+    // Ajoute un logpoint : message dans la console a chaque passage, sans arreter le programme
+    public int addLogpoint(String className, int line, String message, int maxPerSecond) {
+        if (breakpoints == null) return -1;
         try {
-            for (ReferenceType type : vm.allClasses()) {
-                if (type.name().equals(className) || type.name().endsWith("." + className)) {
-                    List<Location> locs = type.locationsOfLine(line);
-                    if (!locs.isEmpty()) {
-                        BreakpointRequest bp = vm.eventRequestManager().createBreakpointRequest(locs.get(0));
-                        bp.enable();
-                        breakpoints.add(bp);
-                        listener.onOutput("Breakpoint added at " + className + ":" + line + "\n");
-                        return;
-                    }
+            BreakpointInfo info = new BreakpointInfo(className, line, null);
+            info.setLogTemplate(LogTemplate.compile(message), maxPerSecond);
+            return arm(info);
+        } catch (IllegalArgumentException e) {
+            listener.onOutput("Invalid logpoint message: " + e.getMessage() + "\n");
+            return -1;
+        }
+    }
+
+    // Pose les requests d'un breakpoint, ou le met en attente si la classe n'est pas chargee
+    private int arm(BreakpointInfo info) {
+        String className = info.getFilename();
+        if (!info.isLogpoint()) {
+            info.setSuspendPolicy(suspendPolicy);
+        }
+        int line = info.getLineNumber();
+        List<ReferenceType> types = classIndex.find(className);
+
+        if (types.isEmpty()) {
+            breakpoints.addPending(info);
+            classIndex.watch(className);
+            listener.onOutput("Breakpoint pending until " + className + " is loaded\n");
+            return line;
+        }
+
+        try {
+            for (ReferenceType type : types) {
+                if (breakpoints.arm(info, type)) {
+                    listener.onOutput("Breakpoint added at " + info + "\n");
+                    return info.getLineNumber();
                 }
             }
             listener.onOutput("Could not set breakpoint at " + className + ":" + line + "\n");
         } catch (AbsentInformationException e) {
             listener.onOutput("No debug info for " + className + "\n");
         }
+        return -1;
+    }
+
+    // Supprime un breakpoint (et sa request dans la VM)
+    public void removeBreakpoint(String className, int line) {
+        if (breakpoints == null) return;
+        BreakpointInfo info = breakpoints.find(className, line);
+        if (info != null && breakpoints.remove(info)) {
+            if (info.isPending() && !breakpoints.hasPending(info.getFilename())) {
+                classIndex.unwatch(info.getFilename());
+            }
+            listener.onOutput("Breakpoint removed at " + className + ":" + line + "\n");
+        }
+    }
+
+    // Mode de suspension des prochains breakpoints et steps :
+    // true = seulement le thread qui s'arrete, les autres threads continuent
+    public void setSuspendThreadOnly(boolean threadOnly) {
+        suspendPolicy = threadOnly ? EventRequest.SUSPEND_EVENT_THREAD : EventRequest.SUSPEND_ALL;
+        listener.onOutput("Suspend mode: " + (threadOnly ? "thread only" : "all threads") + "\n");
     }
 
     // Arrete le debugger
     public void stop() {
         running = false;
         waitingForCommand = false;
+        // Reveille le thread JDI s'il attend une commande
+        commands.clear();
+        commands.offer(STOP_COMMAND);
         if (vm != null) {
             try {
                 vm.exit(0);
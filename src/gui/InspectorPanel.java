@@ -1,24 +1,57 @@
 package gui;
 
 import com.sun.jdi.*;
+import dbg.ArrayPager;
+import dbg.CollectionView;
+import dbg.FrameSnapshot;
+import dbg.StringPreview;
+import dbg.ValueRenderers;
 
 import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 // Panneau INSPECTOR qui affiche les variables sous forme d'arbre
 // Un objet = noeud racine avec son type
 // Ses variables d'instance = feuilles (qui peuvent avoir des sous-feuilles)
+// L'arbre est paresseux : les champs d'un objet sont lus seulement quand on deplie son noeud,
+// en arriere-plan (noeud "loading..." en attendant), puis gardes jusqu'au prochain arret
+// Pas de limite de profondeur : un objet deja present plus haut dans la branche est un cycle
 public class InspectorPanel extends JPanel {
 
     private JTree variableTree;
     private DefaultMutableTreeNode rootNode;
     private DefaultTreeModel treeModel;
 
-    // Limite de profondeur pour eviter les arbres gigantesques
-    private static final int MAX_DEPTH = 2;
+    // Nombre max de sous-plages sous un noeud de tableau
+    private static final int MAX_RANGES = 100;
+
+    // Chaines : caracteres lus pour l'apercu, puis par page et par ligne au depliage
+    private static final int STRING_PREVIEW = 40;
+    private static final int STRING_PAGE = 1000;
+    private static final int STRING_LINE = 100;
+
+    private final ValueRenderers renderers = ValueRenderers.getDefault();
+
+    // Lectures JDI hors de l'EDT (un seul thread : les requetes JDWP passent une par une)
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "inspector-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile int generation;  // Change a chaque arret : les chargements en retard sont ignores
+    private final Set<Future<?>> pendingLoads = new HashSet<>();
 
     public InspectorPanel() {
         setLayout(new BorderLayout());
@@ -34,39 +67,64 @@ public class InspectorPanel extends JPanel {
         variableTree.setRootVisible(true);
         variableTree.setShowsRootHandles(true);
 
+        // Chargement des enfants au premier depliage
+        variableTree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                Object node = event.getPath().getLastPathComponent();
+                if (node instanceof ValueNode) {
+                    load((ValueNode) node);
+                }
+            }
+
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {
+            }
+        });
+
         add(new JScrollPane(variableTree), BorderLayout.CENTER);
         setPreferredSize(new Dimension(300, 200));
     }
 
-    // Met a jour l'arbre avec les variables de la frame selectionnee
-    public void updateVariables(StackFrame frame) {
-        rootNode.removeAllChildren();
-
-        if (frame == null) {
-            treeModel.reload();
-            return;
+    // Premier niveau de l'arbre pour une frame (this et variables locales)
+    // Appele hors EDT : les noeuds ne sont pas encore dans l'arbre ; seul le premier niveau est lu,
+    // le cout ne depend pas de la taille des objets
+    public List<MutableTreeNode> buildVariables(FrameSnapshot snapshot) {
+        List<MutableTreeNode> nodes = new ArrayList<>();
+        if (snapshot == null) {
+            return nodes;
         }
 
         try {
-            // 1. Ajoute "this" si c'est une methode d'instance
-            ObjectReference thisObj = frame.thisObject();
+            // 1. Ajoute "this" si c'est une methode d'instance (champs deja lus par le snapshot)
+            ObjectReference thisObj = snapshot.getThisObject();
             if (thisObj != null) {
-                DefaultMutableTreeNode thisNode = createObjectNode("this", thisObj, 0);
-                rootNode.add(thisNode);
+                ValueNode thisNode = createValueNode("this", thisObj.referenceType().name(), thisObj);
+                thisNode.setChildren(fieldNodes(thisNode, snapshot.getFields()));
+                nodes.add(thisNode);
             }
 
             // 2. Ajoute les variables locales (temporaries)
-            List<LocalVariable> locals = frame.visibleVariables();
-            for (LocalVariable var : locals) {
-                Value value = frame.getValue(var);
-                DefaultMutableTreeNode varNode = createValueNode(var.name(), var.typeName(), value, 0);
-                rootNode.add(varNode);
+            if (!snapshot.hasDebugInfo()) {
+                nodes.add(new DefaultMutableTreeNode("(no debug info - compile with -g)"));
+            }
+            for (LocalVariable var : snapshot.getVariables()) {
+                Value value = snapshot.getLocals().get(var.name());
+                nodes.add(createValueNode(var.name(), var.typeName(), value));
             }
 
-        } catch (AbsentInformationException e) {
-            rootNode.add(new DefaultMutableTreeNode("(no debug info - compile with -g)"));
         } catch (Exception e) {
-            rootNode.add(new DefaultMutableTreeNode("Error: " + e.getMessage()));
+            nodes.add(new DefaultMutableTreeNode("Error: " + e.getMessage()));
+        }
+        return nodes;
+    }
+
+    // Remplace l'arbre par des noeuds construits par buildVariables (EDT)
+    public void showVariables(List<MutableTreeNode> nodes) {
+        cancelLoads();
+        rootNode.removeAllChildren();
+        for (MutableTreeNode node : nodes) {
+            rootNode.add(node);
         }
 
         treeModel.reload();
@@ -74,90 +132,234 @@ public class InspectorPanel extends JPanel {
         variableTree.expandRow(0);
     }
 
-    // Cree un noeud pour un OBJET (avec ses variables d'instance comme enfants)
-    private DefaultMutableTreeNode createObjectNode(String name, ObjectReference obj, int depth) {
-        String typeName = obj.referenceType().name();
-        String simpleTypeName = simplifyTypeName(typeName);
+    // Abandonne les chargements en cours (nouvel arret, ou le programme repart)
+    public void cancelLoads() {
+        generation++;
+        synchronized (pendingLoads) {
+            for (Future<?> load : pendingLoads) {
+                load.cancel(true);
+            }
+            pendingLoads.clear();
+        }
+    }
 
-        // Pour les classes JDK (java.*, javax.*, sun.*), on affiche juste la valeur
-        // sans explorer leurs champs internes
-        if (isJdkClass(typeName)) {
-            String display = getSimpleDisplay(obj, simpleTypeName);
-            return new DefaultMutableTreeNode(name + " : " + simpleTypeName + " = " + display);
+    // Lit les enfants d'un noeud en arriere-plan, puis les ajoute sur l'EDT
+    private void load(ValueNode node) {
+        if (node.loaded || node.loading) {
+            return;  // Deja en cache pour cet arret (ou en cours)
         }
+        node.loading = true;
+        int requestGeneration = generation;
 
-        // Noeud racine affiche le TYPE de l'objet
-        String label = name + " : " + simpleTypeName;
-        DefaultMutableTreeNode node = new DefaultMutableTreeNode(label);
+        Future<?>[] self = new Future<?>[1];
+        self[0] = loader.submit(() -> {
+            if (requestGeneration != generation) {
+                return;  // Annule avant d'avoir commence
+            }
+            List<MutableTreeNode> children;
+            try {
+                children = loadChildren(node);
+            } catch (Exception e) {
+                children = new ArrayList<>();
+                children.add(new DefaultMutableTreeNode("(unavailable: " + e.getClass().getSimpleName() + ")"));
+            }
 
-        // Limite la profondeur
-        if (depth >= MAX_DEPTH) {
-            node.add(new DefaultMutableTreeNode("..."));
-            return node;
+            List<MutableTreeNode> result = children;
+            SwingUtilities.invokeLater(() -> {
+                synchronized (pendingLoads) {
+                    pendingLoads.remove(self[0]);
+                }
+                if (requestGeneration != generation) {
+                    return;  // Le programme est reparti : ce noeud n'est plus affiche
+                }
+                node.setChildren(result);
+                treeModel.nodeStructureChanged(node);
+            });
+        });
+        synchronized (pendingLoads) {
+            pendingLoads.add(self[0]);
         }
+    }
 
-        try {
-            ReferenceType type = obj.referenceType();
-
-            // Utilise fields() au lieu de allFields() pour avoir seulement
-            // les champs declares dans cette classe (pas les herites)
-            List<Field> fields = type.fields();
-            Map<Field, Value> values = obj.getValues(fields);
+    // Enfants d'un objet (ses champs, en un seul getValues), d'un tableau ou d'une collection (par plages),
+    // ou suite d'une chaine
+    private List<MutableTreeNode> loadChildren(ValueNode node) {
+        if (node instanceof StringNode) {
+            return stringChildren((StringNode) node);
+        }
+        if (node instanceof RangeNode) {
+            RangeNode range = (RangeNode) node;
+            return rangeChildren(range, range.pager, range.view, range.from, range.to);
+        }
+        if (node.value instanceof ArrayReference) {
+            ArrayPager pager = new ArrayPager((ArrayReference) node.value);
+            return rangeChildren(node, pager, null, 0, pager.length());
+        }
+        if (node.view != null) {
+            return rangeChildren(node, null, node.view, 0, node.view.size());
+        }
 
-            for (Field field : fields) {
-                // Ignore les champs statiques
-                if (field.isStatic()) continue;
+        ObjectReference obj = (ObjectReference) node.value;
+        List<Field> fields = new ArrayList<>();
+        for (Field field : obj.referenceType().allFields()) {
+            // Ignore les champs statiques
+            if (!field.isStatic()) {
+                fields.add(field);
+            }
+        }
+        Map<Field, Value> values = obj.getValues(fields);
 
-                Value value = values.get(field);
-                String fieldTypeName = field.typeName();
+        // getValues renvoie une HashMap : on garde l'ordre de declaration
+        Map<Field, Value> ordered = new LinkedHashMap<>();
+        for (Field field : fields) {
+            ordered.put(field, values.get(field));
+        }
+        return fieldNodes(node, ordered);
+    }
 
-                DefaultMutableTreeNode childNode = createValueNode(field.name(), fieldTypeName, value, depth + 1);
-                node.add(childNode);
+    // Elements [from, to[ d'un tableau (pager) ou d'une collection (view) : les elements eux-memes
+    // si la plage tient dans une page, sinon des sous-plages (au plus MAX_RANGES) lues au depliage
+    private List<MutableTreeNode> rangeChildren(ValueNode parent, ArrayPager pager, CollectionView view,
+                                                int from, int to) {
+        List<MutableTreeNode> children = new ArrayList<>();
+        int pageSize = view != null ? ValueRenderers.PAGE_SIZE : ArrayPager.CHUNK_SIZE;
+
+        if (to - from <= pageSize && view != null) {
+            int index = from;
+            for (CollectionView.Entry entry : view.entries(from, to - from)) {
+                String name = view.isMap() ? renderers.format(entry.key) : "[" + index + "]";
+                String typeName = entry.value != null ? entry.value.type().name() : "Object";
+                children.add(childNode(parent, name, typeName, entry.value));
+                index++;
             }
-
-            if (node.getChildCount() == 0) {
-                node.add(new DefaultMutableTreeNode("(empty)"));
+            return children;
+        }
+        if (to - from <= pageSize) {
+            String componentType = simplifyTypeName(pager.getComponentType());
+            for (int i = from; i < to; i++) {
+                if (pager.isPrimitive()) {
+                    children.add(new DefaultMutableTreeNode("[" + i + "] : " + componentType + " = " + pager.format(i)));
+                } else {
+                    children.add(childNode(parent, "[" + i + "]", pager.getComponentType(), pager.getValue(i)));
+                }
             }
+            // Le morceau suivant arrive pendant qu'on regarde celui-ci
+            pager.prefetch(from / ArrayPager.CHUNK_SIZE + 1);
+            return children;
+        }
 
-        } catch (Exception e) {
-            node.add(new DefaultMutableTreeNode("(error)"));
+        long span = pageSize;
+        while ((to - from + span - 1) / span > MAX_RANGES) {
+            span *= 10;
         }
+        for (long start = from; start < to; start += span) {
+            int end = (int) Math.min(start + span, to);
+            children.add(new RangeNode(parent.name, parent.value, pager, view, (int) start, end));
+        }
+        return children;
+    }
 
-        return node;
+    // Page suivante d'une chaine (STRING_PAGE caracteres, un seul getValues), en lignes de STRING_LINE,
+    // puis un noeud "more" pour la page d'apres
+    private List<MutableTreeNode> stringChildren(StringNode node) {
+        List<MutableTreeNode> children = new ArrayList<>();
+        StringPreview page = StringPreview.read((StringReference) node.value, node.from, STRING_PAGE);
+        String text = page.getText();
+        for (int i = 0; i < text.length(); i += STRING_LINE) {
+            int end = Math.min(text.length(), i + STRING_LINE);
+            children.add(new DefaultMutableTreeNode("[" + (page.getFrom() + i) + "] " + escape(text.substring(i, end))));
+        }
+        if (page.hasMore()) {
+            int next = page.getFrom() + text.length();
+            children.add(new StringNode(node.name, node.value,
+                    "... (" + (page.length() - next) + " more chars)", next));
+        }
+        return children;
     }
 
-    // Cree un noeud pour une VALEUR (primitive ou objet)
-    private DefaultMutableTreeNode createValueNode(String name, String typeName, Value value, int depth) {
+    // Une chaine sur une ligne de l'arbre
+    private String escape(String text) {
+        return text.replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+    }
+
+    private List<MutableTreeNode> fieldNodes(ValueNode parent, Map<Field, Value> values) {
+        List<MutableTreeNode> children = new ArrayList<>();
+        for (Map.Entry<Field, Value> entry : values.entrySet()) {
+            Field field = entry.getKey();
+            children.add(childNode(parent, field.name(), field.typeName(), entry.getValue()));
+        }
+        if (children.isEmpty()) {
+            children.add(new DefaultMutableTreeNode("(empty)"));
+        }
+        return children;
+    }
+
+    // Noeud enfant, sauf si l'objet est deja un ancetre dans la branche (cycle)
+    private MutableTreeNode childNode(ValueNode parent, String name, String typeName, Value value) {
+        if (value instanceof ObjectReference) {
+            long id = ((ObjectReference) value).uniqueID();
+            for (TreeNode n = parent; n instanceof ValueNode; n = n.getParent()) {
+                ValueNode ancestor = (ValueNode) n;
+                if (ancestor.value instanceof ObjectReference && ((ObjectReference) ancestor.value).uniqueID() == id) {
+                    return new DefaultMutableTreeNode(name + " : " + simplifyTypeName(typeName)
+                            + " (cycle -> " + ancestor.name + ", id=" + id + ")");
+                }
+            }
+        }
+        return createValueNode(name, typeName, value);
+    }
+
+    // Cree un noeud pour une VALEUR (primitive ou objet) ; les enfants sont lus plus tard
+    private ValueNode createValueNode(String name, String typeName, Value value) {
 
         // Cas 1: valeur null
         if (value == null) {
-            return new DefaultMutableTreeNode(name + " : " + simplifyTypeName(typeName) + " = null");
+            return new ValueNode(name, null, name + " : " + simplifyTypeName(typeName) + " = null", false);
         }
 
-        // Cas 2: String - affiche directement la valeur
+        // Cas 2: String - affiche le debut (seuls ces caracteres sont lus), la suite au depliage
         if (value instanceof StringReference) {
-            String strValue = ((StringReference) value).value();
-            if (strValue.length() > 40) {
-                strValue = strValue.substring(0, 40) + "...";
+            StringPreview preview = StringPreview.of((StringReference) value, STRING_PREVIEW);
+            String label = name + " : String = " + escape(preview.toDisplay());
+            if (preview.hasMore()) {
+                return new StringNode(name, value, label, preview.getText().length());
             }
-            return new DefaultMutableTreeNode(name + " : String = \"" + strValue + "\"");
+            return new ValueNode(name, value, label, false);
         }
 
-        // Cas 3: Tableau - affiche le type et la taille
+        // Cas 3: Tableau - affiche le type et la taille, elements au depliage
         if (value instanceof ArrayReference) {
             ArrayReference arr = (ArrayReference) value;
-            String simpleType = simplifyTypeName(typeName);
-            return new DefaultMutableTreeNode(name + " : " + simpleType + " (length=" + arr.length() + ")");
+            String simpleType = simplifyTypeName(arr.referenceType().name());
+            return new ValueNode(name, value, name + " : " + simpleType + " (length=" + arr.length() + ")",
+                    arr.length() > 0);
         }
 
-        // Cas 4: Objet - cree un noeud avec enfants (sauf pour JDK)
+        // Cas 4: Objet - champs au depliage (sauf pour JDK)
         if (value instanceof ObjectReference) {
-            return createObjectNode(name, (ObjectReference) value, depth);
+            ObjectReference obj = (ObjectReference) value;
+            String fullType = obj.referenceType().name();
+            String simpleType = simplifyTypeName(fullType);
+
+            // Pour les classes JDK (java.*, javax.*, sun.*), on affiche juste la valeur
+            // sans explorer leurs champs internes
+            if (isJdkClass(fullType)) {
+                // Collections connues : taille lue maintenant, contenu au depliage
+                CollectionView view = renderers.open(obj);
+                if (view != null) {
+                    ValueNode node = new ValueNode(name, value, name + " : " + simpleType + " (size=" + view.size() + ")",
+                            view.size() > 0);
+                    node.view = view;
+                    return node;
+                }
+                return new ValueNode(name, value, name + " : " + simpleType + " = " + getSimpleDisplay(obj), false);
+            }
+            return new ValueNode(name, value, name + " : " + simpleType, true);
         }
 
         // Cas 5: Primitive (int, boolean, etc.)
         String simpleType = simplifyTypeName(typeName);
-        return new DefaultMutableTreeNode(name + " : " + simpleType + " = " + value.toString());
+        return new ValueNode(name, value, name + " : " + simpleType + " = " + value.toString(), false);
     }
 
     // Verifie si c'est une classe du JDK (qu'on ne veut pas explorer en profondeur)
@@ -170,19 +372,12 @@ public class InspectorPanel extends JPanel {
     }
 
     // Retourne un affichage simple pour les objets JDK
-    private String getSimpleDisplay(ObjectReference obj, String simpleType) {
+    private String getSimpleDisplay(ObjectReference obj) {
         try {
-            // Pour certains types, on peut afficher une valeur utile
-            String fullType = obj.referenceType().name();
-
-            if (fullType.equals("java.lang.Integer") ||
-                fullType.equals("java.lang.Long") ||
-                fullType.equals("java.lang.Double") ||
-                fullType.equals("java.lang.Float") ||
-                fullType.equals("java.lang.Boolean") ||
-                fullType.equals("java.lang.Character")) {
-                // Wrapper types - invoke toString()
-                return obj.toString();
+            // Wrapper types (Integer...) - valeur lue dans le champ value, sans invokeMethod
+            Value boxed = ValueRenderers.boxedValue(obj);
+            if (boxed != null) {
+                return boxed.toString();
             }
 
             // Pour les autres, affiche juste l'id
@@ -204,7 +399,61 @@ public class InspectorPanel extends JPanel {
 
     // Efface l'arbre
     public void clear() {
+        cancelLoads();
         rootNode.removeAllChildren();
         treeModel.reload();
     }
+
+    // Noeud d'une valeur : ses enfants sont charges au premier depliage puis gardes
+    private static class ValueNode extends DefaultMutableTreeNode {
+        final String name;
+        final Value value;
+        protected CollectionView view;  // Contenu logique si l'objet a un renderer (ArrayList, HashMap...)
+        private boolean loaded;
+        private boolean loading;
+
+        ValueNode(String name, Value value, String label, boolean expandable) {
+            super(label);
+            this.name = name;
+            this.value = value;
+            this.loaded = !expandable;
+            if (expandable) {
+                add(new DefaultMutableTreeNode("loading..."));  // Fait apparaitre la poignee
+            }
+        }
+
+        void setChildren(List<MutableTreeNode> children) {
+            removeAllChildren();
+            for (MutableTreeNode child : children) {
+                add(child);
+            }
+            loaded = true;
+            loading = false;
+        }
+    }
+
+    // Suite d'une chaine a partir du caractere from, lue au depliage
+    private static class StringNode extends ValueNode {
+        private final int from;
+
+        StringNode(String name, Value string, String label, int from) {
+            super(name, string, label, true);
+            this.from = from;
+        }
+    }
+
+    // Plage [from, to[ d'un grand tableau ou d'une grande collection, lue au depliage
+    private static class RangeNode extends ValueNode {
+        private final ArrayPager pager;
+        private final int from;
+        private final int to;
+
+        RangeNode(String name, Value value, ArrayPager pager, CollectionView view, int from, int to) {
+            super(name, value, "[" + from + ".." + (to - 1) + "]", true);
+            this.pager = pager;
+            this.view = view;
+            this.from = from;
+            this.to = to;
+        }
+    }
 }
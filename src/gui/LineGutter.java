@@ -0,0 +1,149 @@
+package gui;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.Rectangle2D;
+import java.util.Set;
+
+// Marge des numeros de ligne, dessinee a la main a cote de la zone de code
+// - ne dessine que les lignes visibles (zone de clip), trouvees dans les elements du document :
+//   le cout est le meme pour un fichier de 50 lignes ou de 100 000
+// - les positions viennent de la mise en page du texte (modelToView / viewToModel) :
+//   un clic tombe toujours sur la bonne ligne, sans calcul a partir de la hauteur de police
+// - marqueurs : rond rouge = breakpoint (lookup dans un Set), fleche = ligne courante
+public class LineGutter extends JComponent {
+
+    private static final int MARKER_WIDTH = 14;
+    private static final int PADDING = 6;
+    private static final Color BACKGROUND = new Color(240, 240, 240);
+    private static final Color BREAKPOINT_COLOR = new Color(210, 40, 40);
+    private static final Color CURRENT_LINE_COLOR = new Color(230, 160, 0);
+
+    private final JTextComponent text;
+    private Set<Integer> breakpointLines;
+    private int currentLine = -1;
+    private int digits;  // Largeur du plus grand numero, en chiffres
+
+    public LineGutter(JTextComponent text, Set<Integer> breakpointLines) {
+        this.text = text;
+        this.breakpointLines = breakpointLines;
+        setFont(text.getFont());
+        setForeground(Color.GRAY);
+        setBackground(BACKGROUND);
+        setOpaque(true);
+
+        // La hauteur suit celle de la zone de code (le row header defile avec elle)
+        text.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                revalidate();
+                repaint();
+            }
+        });
+        documentChanged();
+    }
+
+    // Marques du fichier affiche (chaque fichier a son propre ensemble)
+    public void setBreakpointLines(Set<Integer> breakpointLines) {
+        this.breakpointLines = breakpointLines;
+        repaint();
+    }
+
+    // Nouveau document affiche : seule la largeur peut changer
+    public void documentChanged() {
+        int lines = text.getDocument().getDefaultRootElement().getElementCount();
+        digits = Math.max(3, String.valueOf(lines).length());
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = MARKER_WIDTH + metrics.charWidth('0') * digits + PADDING;
+        return new Dimension(width, text.getPreferredSize().height);
+    }
+
+    // Ligne sous la position y (1 = premiere ligne, -1 si aucune)
+    public int lineAt(int y) {
+        int offset = text.viewToModel2D(new Point(0, y));
+        if (offset < 0) {
+            return -1;
+        }
+        Element root = text.getDocument().getDefaultRootElement();
+        return root.getElementIndex(offset) + 1;
+    }
+
+    public void setCurrentLine(int line) {
+        int previous = currentLine;
+        currentLine = line;
+        repaintLine(previous);
+        repaintLine(line);
+    }
+
+    // Redessine une seule ligne (ex: breakpoint pose ou enleve)
+    public void repaintLine(int line) {
+        Rectangle2D r = lineBounds(line);
+        if (r != null) {
+            repaint(0, (int) r.getY(), getWidth(), (int) Math.ceil(r.getHeight()));
+        }
+    }
+
+    private Rectangle2D lineBounds(int line) {
+        Element root = text.getDocument().getDefaultRootElement();
+        if (line <= 0 || line > root.getElementCount()) {
+            return null;
+        }
+        try {
+            return text.modelToView2D(root.getElement(line - 1).getStartOffset());
+        } catch (BadLocationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        Element root = text.getDocument().getDefaultRootElement();
+        int first = lineAt(clip.y);
+        if (first < 0) {
+            return;
+        }
+        FontMetrics metrics = g.getFontMetrics(getFont());
+        int numberRight = getWidth() - PADDING;
+
+        // Lignes visibles seulement : on s'arrete des qu'on sort de la zone de clip
+        for (int line = first; line <= root.getElementCount(); line++) {
+            Rectangle2D r = lineBounds(line);
+            if (r == null || r.getY() > clip.y + clip.height) {
+                break;
+            }
+            int y = (int) r.getY();
+            int height = (int) Math.ceil(r.getHeight());
+            int baseline = y + (height + metrics.getAscent() - metrics.getDescent()) / 2;
+
+            if (breakpointLines.contains(line)) {
+                int size = Math.min(height, MARKER_WIDTH) - 4;
+                g.setColor(BREAKPOINT_COLOR);
+                g.fillOval(2, y + (height - size) / 2, size, size);
+            }
+            if (line == currentLine) {
+                int middle = y + height / 2;
+                g.setColor(CURRENT_LINE_COLOR);
+                g.fillPolygon(new int[] {3, MARKER_WIDTH - 2, 3}, new int[] {middle - 4, middle, middle + 4}, 3);
+            }
+
+            String number = String.valueOf(line);
+            g.setColor(getForeground());
+            g.drawString(number, numberRight - metrics.stringWidth(number), baseline);
+        }
+    }
+}
@@ -28,6 +28,12 @@ public class  MainGUI {
             System.out.println("Working dir: " + userDir);
             System.out.println("Source path: " + sourcePath);
 
+            // Copie de la console dans un fichier : -Ddebugger.output.spill=chemin (10 Mo x 3 fichiers)
+            String spill = System.getProperty("debugger.output.spill");
+            if (spill != null) {
+                gui.setOutputSpill(java.nio.file.Paths.get(spill), 10L * 1024 * 1024, 3);
+            }
+
             // Demarre le debugger sur la classe de test
             gui.startDebugging(JDISimpleDebuggee.class, sourcePath);
         });
@@ -1,13 +1,41 @@
 package gui;
 
+import dbg.LogBuffer;
+
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
 
 // Panneau qui affiche la sortie console du programme debugge
+// - appendOutput() est appelable depuis n'importe quel thread et ne touche pas a Swing :
+//   le texte est range dans un tampon circulaire de MAX_LINES lignes
+// - un timer Swing recopie le nouveau texte dans le document au plus une fois par FRAME_MS,
+//   et retire du debut du document les lignes sorties du tampon (memoire bornee)
+// - optionnellement, toutes les lignes sont aussi ecrites dans un fichier avec rotation
 public class OutputPanel extends JPanel {
 
+    private static final int MAX_LINES = 5000;
+    private static final int FRAME_MS = 33;
+    private static final int SPILL_CAPACITY = 65536;  // Lignes en attente d'ecriture dans le fichier
+
     private JTextArea outputArea;
 
+    // Tampon circulaire des lignes completes (garde par this)
+    private final String[] lines = new String[MAX_LINES];
+    private int head;                // Index de la plus ancienne ligne
+    private int size;
+    private int unflushed;           // Lignes du tampon pas encore dans le document (au plus MAX_LINES)
+    private final StringBuilder partial = new StringBuilder();  // Derniere ligne, sans \n
+    private boolean dirty;
+
+    private int shownPartialLength;  // Longueur de la ligne incomplete deja affichee (EDT)
+    private volatile LogBuffer spill;
+
     public OutputPanel() {
         setLayout(new BorderLayout());
         setBorder(BorderFactory.createTitledBorder("OUTPUT"));
@@ -17,20 +45,116 @@ public class OutputPanel extends JPanel {
         outputArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
         outputArea.setBackground(new Color(30, 30, 30));
         outputArea.setForeground(new Color(200, 200, 200));
+        // Le caret ne suit pas chaque insertion : on scrolle une fois par mise a jour
+        ((DefaultCaret) outputArea.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
 
         add(new JScrollPane(outputArea), BorderLayout.CENTER);
         setPreferredSize(new Dimension(400, 150));
+
+        Timer refresh = new Timer(FRAME_MS, e -> flush());
+        refresh.start();
     }
 
-    // Ajoute du texte a la console
+    // Ajoute du texte a la console (n'importe quel thread, ne bloque pas sur l'EDT)
     public void appendOutput(String text) {
-        outputArea.append(text);
+        LogBuffer spillOutput = spill;
+        synchronized (this) {
+            int start = 0;
+            int newline;
+            while ((newline = text.indexOf('\n', start)) >= 0) {
+                partial.append(text, start, newline);
+                String line = partial.toString();
+                partial.setLength(0);
+                addLine(line);
+                if (spillOutput != null) {
+                    spillOutput.offer(line);
+                }
+                start = newline + 1;
+            }
+            partial.append(text, start, text.length());
+            dirty = true;
+        }
+    }
+
+    private void addLine(String line) {
+        if (size == MAX_LINES) {
+            head = (head + 1) % MAX_LINES;
+            size--;
+        }
+        lines[(head + size) % MAX_LINES] = line;
+        size++;
+        unflushed = Math.min(unflushed + 1, MAX_LINES);
+    }
+
+    // Ecrit aussi toutes les lignes dans un fichier (rotation au-dela de maxBytes, keep anciens fichiers)
+    public void setSpillFile(Path path, long maxBytes, int keep) throws IOException {
+        LogBuffer previous = spill;
+        spill = new LogBuffer(SPILL_CAPACITY, LogBuffer.rotatingFileSink(path, maxBytes, keep));
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    // Recopie le nouveau texte dans le document (EDT, appele par le timer)
+    private void flush() {
+        String added;
+        String tail;
+        boolean replaceAll;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+
+            replaceAll = unflushed >= MAX_LINES;
+            StringBuilder sb = new StringBuilder();
+            for (int i = size - unflushed; i < size; i++) {
+                sb.append(lines[(head + i) % MAX_LINES]).append('\n');
+            }
+            unflushed = 0;
+            added = sb.toString();
+            tail = partial.toString();
+        }
+
+        Document doc = outputArea.getDocument();
+        try {
+            if (replaceAll) {
+                // Tout le tampon a change depuis le dernier affichage
+                outputArea.setText(added + tail);
+            } else {
+                // Enleve la ligne incomplete affichee la derniere fois (elle fait partie du nouveau texte)
+                doc.remove(doc.getLength() - shownPartialLength, shownPartialLength);
+                doc.insertString(doc.getLength(), added + tail, null);
+                trimDocument(doc);
+            }
+        } catch (BadLocationException e) {
+            outputArea.setText(added + tail);
+        }
+        shownPartialLength = tail.length();
+
         // Scroll vers le bas
-        outputArea.setCaretPosition(outputArea.getDocument().getLength());
+        outputArea.setCaretPosition(doc.getLength());
+    }
+
+    // Retire du debut du document les lignes en trop
+    private void trimDocument(Document doc) throws BadLocationException {
+        Element root = doc.getDefaultRootElement();
+        int excess = root.getElementCount() - MAX_LINES - 1;  // +1 : la ligne incomplete
+        if (excess > 0) {
+            doc.remove(0, root.getElement(excess).getStartOffset());
+        }
     }
 
     // Efface la console
     public void clear() {
+        synchronized (this) {
+            head = 0;
+            size = 0;
+            unflushed = 0;
+            partial.setLength(0);
+            dirty = false;
+        }
         outputArea.setText("");
+        shownPartialLength = 0;
     }
 }
@@ -0,0 +1,33 @@
+package gui;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Cache LRU des fichiers sources deja charges, cle = chemin (dossier ou entree d'archive)
+// Une entree est rechargee si la date de modification ou la taille du fichier a change
+// Appele par le worker des vues (hors EDT) : revenir dans un fichier deja vu ne relit rien
+public class SourceCache {
+
+    private final Map<Path, SourceFile> files;
+
+    public SourceCache(int maxFiles) {
+        this.files = new LinkedHashMap<Path, SourceFile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, SourceFile> eldest) {
+                return size() > maxFiles;
+            }
+        };
+    }
+
+    public synchronized SourceFile get(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        SourceFile file = files.get(key);
+        if (file == null || !file.isUpToDate()) {
+            file = SourceFile.load(key);
+            files.put(key, file);
+        }
+        return file;
+    }
+}
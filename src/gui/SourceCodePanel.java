@@ -4,165 +4,204 @@ import javax.swing.*;
 import javax.swing.text.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.io.*;
+import java.awt.geom.Rectangle2D;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 // Panneau qui affiche le code source avec numeros de ligne
+// Les fichiers arrivent deja charges (SourceCache) : changer de fichier = changer de document,
+// et la ligne courante est un surlignage deplace, qui ne redessine que l'ancienne et la nouvelle ligne
 public class SourceCodePanel extends JPanel {
 
+    private static final Color CURRENT_LINE_COLOR = new Color(255, 255, 150);
+
+    // Remplit toute la largeur de la ligne (peint sous le texte)
+    private static final Highlighter.HighlightPainter CURRENT_LINE = (g, p0, p1, bounds, c) -> {
+        try {
+            Rectangle r = c.modelToView2D(p0).getBounds();
+            g.setColor(CURRENT_LINE_COLOR);
+            g.fillRect(0, r.y, c.getWidth(), r.height);
+        } catch (BadLocationException e) {
+            // Ligne hors du document
+        }
+    };
+
     private JTextPane codeArea;
-    private JTextArea lineNumbers;
+    private LineGutter gutter;
     private int currentLine = -1;
-    private Set<Integer> breakpointLines;
+    private SourceFile source;        // Fichier affiche (null si aucun)
+    private Object currentLineTag;    // Surlignage de la ligne courante dans le Highlighter
+    // Lignes marquees, par fichier : la gouttiere recoit l'ensemble du fichier affiche
+    private final Map<Path, Set<Integer>> breakpointLines = new HashMap<>();
     private DebuggerGUI debuggerGUI;
-    private String currentSourcePath;
+    private Path currentSourcePath;
 
     public SourceCodePanel(DebuggerGUI gui) {
         this.debuggerGUI = gui;
-        this.breakpointLines = new HashSet<>();
         setLayout(new BorderLayout());
         setBorder(BorderFactory.createTitledBorder("SOURCE CODE"));
 
-        // Zone des numeros de ligne
-        lineNumbers = new JTextArea();
-        lineNumbers.setEditable(false);
-        lineNumbers.setBackground(new Color(240, 240, 240));
-        lineNumbers.setFont(new Font("Monospaced", Font.PLAIN, 14));
-        lineNumbers.setForeground(Color.GRAY);
-
         // Zone du code
         codeArea = new JTextPane();
         codeArea.setEditable(false);
         codeArea.setFont(new Font("Monospaced", Font.PLAIN, 14));
 
-        // Clic sur les numeros de ligne = breakpoint
-        lineNumbers.addMouseListener(new MouseAdapter() {
+        // Zone des numeros de ligne
+        gutter = new LineGutter(codeArea, new HashSet<>());
+
+        // Clic sur les numeros de ligne = breakpoint, clic droit = logpoint
+        gutter.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                int clickedLine = getLineFromY(e.getY());
-                if (clickedLine > 0) {
+                int clickedLine = gutter.lineAt(e.getY());
+                if (clickedLine <= 0) {
+                    return;
+                }
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    addLogpoint(clickedLine);
+                } else {
                     toggleBreakpoint(clickedLine);
                 }
             }
         });
 
         // Layout
-        JPanel leftPanel = new JPanel(new BorderLayout());
-        leftPanel.add(lineNumbers, BorderLayout.CENTER);
-
         JScrollPane scrollPane = new JScrollPane(codeArea);
-        scrollPane.setRowHeaderView(lineNumbers);
+        scrollPane.setRowHeaderView(gutter);
 
         add(scrollPane, BorderLayout.CENTER);
     }
 
-    // Calcule la ligne a partir de la position Y du clic
-    private int getLineFromY(int y) {
-        try {
-            int lineHeight = lineNumbers.getFontMetrics(lineNumbers.getFont()).getHeight();
-            return (y / lineHeight) + 1;
-        } catch (Exception e) {
-            return -1;
-        }
-    }
-
     // Active/desactive un breakpoint sur une ligne
     private void toggleBreakpoint(int line) {
-        if (breakpointLines.contains(line)) {
-            breakpointLines.remove(line);
-        } else {
-            breakpointLines.add(line);
-            // Dit au debugger de poser le breakpoint
+        Set<Integer> lines = getBreakpointLines();
+        if (lines.contains(line)) {
+            lines.remove(line);
+            gutter.repaintLine(line);
+            // Dit au debugger de supprimer le breakpoint
             if (debuggerGUI != null && currentSourcePath != null) {
-                debuggerGUI.addBreakpoint(currentSourcePath, line);
+                debuggerGUI.removeBreakpoint(currentSourcePath, line);
+            }
+        } else if (debuggerGUI != null && currentSourcePath != null) {
+            // Dit au debugger de poser le breakpoint : il peut le deplacer
+            // sur la ligne executable la plus proche, c'est elle qu'on marque
+            int actualLine = debuggerGUI.addBreakpoint(currentSourcePath, line);
+            if (actualLine > 0) {
+                lines.add(actualLine);
+                gutter.repaintLine(actualLine);
             }
         }
-        updateLineNumbers();
     }
 
-    // Charge et affiche un fichier source
-    public void loadSourceFile(String filePath) {
-        this.currentSourcePath = filePath;
-        try {
-            File file = new File(filePath);
-            if (!file.exists()) {
-                codeArea.setText("// Source file not found: " + filePath);
-                return;
-            }
-
-            StringBuilder code = new StringBuilder();
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                code.append(line).append("\n");
-            }
-            reader.close();
-
-            codeArea.setText(code.toString());
-            updateLineNumbers();
-
-        } catch (IOException e) {
-            codeArea.setText("// Error reading file: " + e.getMessage());
+    // Demande le message d'un logpoint (ex: "i={i} total={this.total}") et le pose
+    private void addLogpoint(int line) {
+        if (debuggerGUI == null || currentSourcePath == null) {
+            return;
+        }
+        String message = JOptionPane.showInputDialog(this,
+                "Message (expressions entre accolades, ex: i={i}) :", "Logpoint ligne " + line,
+                JOptionPane.PLAIN_MESSAGE);
+        if (message == null || message.isEmpty()) {
+            return;
+        }
+        int actualLine = debuggerGUI.addLogpoint(currentSourcePath, line, message);
+        if (actualLine > 0) {
+            getBreakpointLines().add(actualLine);
+            gutter.repaintLine(actualLine);
         }
     }
 
-    // Met a jour les numeros de ligne (avec marqueurs de breakpoint)
-    private void updateLineNumbers() {
-        String text = codeArea.getText();
-        int lines = text.split("\n", -1).length;
-
-        StringBuilder sb = new StringBuilder();
-        for (int i = 1; i <= lines; i++) {
-            String marker = breakpointLines.contains(i) ? "*" : " ";
-            sb.append(String.format("%s%3d ", marker, i));
-            sb.append("\n");
+    // Affiche un fichier source deja charge (rien a faire si c'est deja lui)
+    public void showSource(Path filePath, SourceFile file) {
+        if (!filePath.equals(currentSourcePath)) {
+            this.currentSourcePath = filePath;
+            gutter.setBreakpointLines(getBreakpointLines());
         }
-        lineNumbers.setText(sb.toString());
+        if (file == source) {
+            return;
+        }
+        // Le surlignage pointe dans l'ancien document
+        if (currentLineTag != null) {
+            codeArea.getHighlighter().removeHighlight(currentLineTag);
+            currentLineTag = null;
+        }
+        currentLine = -1;
+        gutter.setCurrentLine(-1);
+        source = file;
+        codeArea.setDocument(file.getDocument());
+        gutter.documentChanged();
     }
 
-    // Surligne la ligne courante d'execution
+    // Surligne la ligne courante d'execution (line <= 0 : plus de ligne courante)
     public void highlightLine(int line) {
-        this.currentLine = line;
-
-        // Reset le style
-        StyledDocument doc = codeArea.getStyledDocument();
-        Style defaultStyle = codeArea.addStyle("default", null);
-        StyleConstants.setBackground(defaultStyle, Color.WHITE);
-        doc.setCharacterAttributes(0, doc.getLength(), defaultStyle, true);
-
-        if (line <= 0) return;
-
-        // Trouve la position de la ligne
-        String text = codeArea.getText();
-        String[] lines = text.split("\n", -1);
-
-        if (line > lines.length) return;
+        if (line == currentLine) {
+            return;
+        }
+        Rectangle previous = lineBounds(currentLine);
+        currentLine = line;
+        gutter.setCurrentLine(line);
+        Highlighter highlighter = codeArea.getHighlighter();
 
-        int startPos = 0;
-        for (int i = 0; i < line - 1; i++) {
-            startPos += lines[i].length() + 1;
+        try {
+            if (source == null || line <= 0 || line > source.lineCount()) {
+                if (currentLineTag != null) {
+                    highlighter.removeHighlight(currentLineTag);
+                    currentLineTag = null;
+                }
+            } else if (currentLineTag == null) {
+                currentLineTag = highlighter.addHighlight(source.lineStart(line), source.lineEnd(line), CURRENT_LINE);
+            } else {
+                highlighter.changeHighlight(currentLineTag, source.lineStart(line), source.lineEnd(line));
+            }
+        } catch (BadLocationException e) {
+            return;
         }
-        int endPos = startPos + lines[line - 1].length();
 
-        // Applique le surlignage jaune
-        Style highlightStyle = codeArea.addStyle("highlight", null);
-        StyleConstants.setBackground(highlightStyle, new Color(255, 255, 150));
-        doc.setCharacterAttributes(startPos, endPos - startPos, highlightStyle, true);
+        // Le Highlighter ne redessine que le texte : on invalide les deux lignes sur toute la largeur
+        if (previous != null) {
+            codeArea.repaint(previous);
+        }
+        Rectangle next = lineBounds(line);
+        if (next != null) {
+            codeArea.repaint(next);
+        }
+        // Scroll apres la mise en page (un nouveau document n'a pas encore sa taille)
+        SwingUtilities.invokeLater(() -> {
+            Rectangle target = lineBounds(currentLine);
+            if (target != null) {
+                codeArea.scrollRectToVisible(target);
+            }
+        });
+    }
 
-        // Scroll vers la ligne
+    // Rectangle d'une ligne sur toute la largeur de la zone (null si pas de ligne)
+    private Rectangle lineBounds(int line) {
+        if (source == null || line <= 0 || line > source.lineCount()) {
+            return null;
+        }
         try {
-            codeArea.setCaretPosition(startPos);
-        } catch (Exception e) {
-            // ignore
+            Rectangle2D r = codeArea.modelToView2D(source.lineStart(line));
+            if (r == null) {
+                return null;  // Pas encore mis en page
+            }
+            return new Rectangle(0, (int) r.getY(), codeArea.getWidth(), (int) Math.ceil(r.getHeight()));
+        } catch (BadLocationException e) {
+            return null;
         }
     }
 
+    // Lignes marquees du fichier affiche (ensemble vide tant qu'aucun fichier n'est affiche)
     public Set<Integer> getBreakpointLines() {
-        return breakpointLines;
+        if (currentSourcePath == null) {
+            return new HashSet<>();
+        }
+        return breakpointLines.computeIfAbsent(currentSourcePath, path -> new HashSet<>());
     }
 
-    public String getCurrentSourcePath() {
+    public Path getCurrentSourcePath() {
         return currentSourcePath;
     }
 }
@@ -0,0 +1,94 @@
+package gui;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.StyledDocument;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+// Un fichier source charge une fois : document pret a afficher + debut de chaque ligne
+// Le document n'est jamais modifie (zone en lecture seule), l'index reste donc valable
+public class SourceFile {
+
+    private final Path path;
+    private final FileTime modified;
+    private final long size;
+    private final StyledDocument document;
+    private final int[] lineStarts;  // lineStarts[i] = offset du debut de la ligne i+1
+    private final int length;
+
+    private SourceFile(Path path, FileTime modified, long size, String text) {
+        this.path = path;
+        this.modified = modified;
+        this.size = size;
+        this.length = text.length();
+
+        // Index des lignes en une passe (pas de split a chaque surlignage)
+        int count = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        lineStarts = new int[count];
+        int line = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lineStarts[line++] = i + 1;
+            }
+        }
+
+        // Construit hors EDT : le document n'est encore attache a aucun composant
+        document = new DefaultStyledDocument();
+        try {
+            document.insertString(0, text, null);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Lit le fichier (fins de ligne normalisees en \n, comme l'ancien readLine)
+    public static SourceFile load(Path path) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        long size = Files.size(path);
+        String text = new String(Files.readAllBytes(path), Charset.defaultCharset()).replace("\r\n", "\n");
+        if (!text.isEmpty() && !text.endsWith("\n")) {
+            text += "\n";
+        }
+        return new SourceFile(path, modified, size, text);
+    }
+
+    // Le fichier sur disque est-il toujours celui qui a ete charge ?
+    public boolean isUpToDate() {
+        try {
+            return Files.getLastModifiedTime(path).equals(modified) && Files.size(path) == size;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public StyledDocument getDocument() {
+        return document;
+    }
+
+    public int lineCount() {
+        return lineStarts.length;
+    }
+
+    // Offset du debut de la ligne (1 = premiere ligne)
+    public int lineStart(int line) {
+        return lineStarts[line - 1];
+    }
+
+    // Offset de la fin de la ligne, sans le \n
+    public int lineEnd(int line) {
+        return line < lineStarts.length ? lineStarts[line] - 1 : length;
+    }
+}
@@ -0,0 +1,331 @@
+package gui;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Index des fichiers sources, construit une fois au demarrage
+// - "dbg/Foo.java" -> fichier, et fichier -> "dbg.Foo" : trouver la source d'un arret
+//   ou la classe d'un breakpoint pose dans la marge = une lecture de map
+// - racines : dossiers (parcourus en parallele), archives *-sources.jar et src.zip
+//   (lues avec un FileSystem zip, sans extraction)
+// - les dossiers sont surveilles (WatchService) : fichiers ajoutes ou supprimes mis a jour au fil de l'eau
+// Un fichier d'un dossier est prioritaire sur la meme source dans une archive
+public class SourceIndex {
+
+    private final List<Path> directories = new ArrayList<>();
+    private final List<Path> archives = new ArrayList<>();
+    private final Map<String, Path> bySourcePath = new ConcurrentHashMap<>();  // "dbg/Foo.java" -> fichier
+    private final Map<Path, String> byFile = new ConcurrentHashMap<>();        // fichier -> "dbg/Foo.java"
+    private final Map<WatchKey, Path[]> watched = new ConcurrentHashMap<>();   // cle -> {dossier, racine}
+    private final CountDownLatch directoriesReady = new CountDownLatch(1);  // Dossiers indexes (archives pas encore)
+    private final CountDownLatch ready = new CountDownLatch(1);             // Tout indexe
+    private WatchService watcher;
+
+    // Racines : dossiers ou archives (.jar, .zip) ; les absentes sont ignorees
+    public SourceIndex(List<Path> roots) {
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                directories.add(root.toAbsolutePath().normalize());
+            } else if (Files.isRegularFile(root) && isArchive(root)) {
+                archives.add(root.toAbsolutePath().normalize());
+            }
+        }
+    }
+
+    // Lance l'indexation puis la surveillance des dossiers (thread de fond)
+    public void start() {
+        Thread thread = new Thread(this::run, "source-indexer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            watcher = null;  // Index sans mise a jour
+        }
+        try {
+            // Dossiers d'abord : une archive n'ajoute que les sources absentes des dossiers
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            List<Path> found = new ArrayList<>(archives);
+            try {
+                for (Path directory : directories) {
+                    pool.invoke(new DirectoryScan(directory, directory, found));
+                }
+            } finally {
+                directoriesReady.countDown();
+            }
+            for (Path archive : found) {
+                indexArchive(archive);
+            }
+        } finally {
+            ready.countDown();
+        }
+        if (watcher != null) {
+            watchLoop();
+        }
+    }
+
+    // Source d'une classe a partir du nom de classe et du nom de fichier donnes par JDI
+    // (ex: "dbg.JDISimpleDebuggee" + "JDISimpleDebuggee.java" -> .../src/dbg/JDISimpleDebuggee.java)
+    // Les sources du projet sont trouvees des que les dossiers sont indexes, sans attendre src.zip
+    public Path find(String className, String sourceName) {
+        int lastDot = className.lastIndexOf('.');
+        String packagePath = lastDot > 0 ? className.substring(0, lastDot).replace('.', '/') + "/" : "";
+        await(directoriesReady);
+        Path file = bySourcePath.get(packagePath + sourceName);
+        if (file == null) {
+            await(ready);
+            file = bySourcePath.get(packagePath + sourceName);
+        }
+        return file;
+    }
+
+    // Classe principale d'un fichier indexe (ex: "dbg.JDISimpleDebuggee"), null si inconnu
+    // N'attend jamais l'index (appele sur l'EDT depuis la marge) : le fichier affiche a ete trouve par find,
+    // il est donc deja dans la map
+    public String classNameOf(Path file) {
+        String sourcePath = byFile.get(file.toAbsolutePath().normalize());
+        if (sourcePath == null) {
+            return null;
+        }
+        return sourcePath.substring(0, sourcePath.length() - ".java".length()).replace('/', '.');
+    }
+
+    public int size() {
+        await(ready);
+        return bySourcePath.size();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Parcours parallele d'un dossier : une tache par sous-dossier
+    private class DirectoryScan extends RecursiveAction {
+        private final Path root;
+        private final Path directory;
+        private final List<Path> archivesFound;
+
+        DirectoryScan(Path root, Path directory, List<Path> archivesFound) {
+            this.root = root;
+            this.directory = directory;
+            this.archivesFound = archivesFound;
+        }
+
+        @Override
+        protected void compute() {
+            watch(directory, root);
+            List<DirectoryScan> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry)) {
+                        subtasks.add(new DirectoryScan(root, entry, archivesFound));
+                    } else if (isJavaFile(entry)) {
+                        add(root, entry, false);
+                    } else if (entry.getFileName().toString().endsWith("-sources.jar")) {
+                        synchronized (archivesFound) {
+                            archivesFound.add(entry);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                return;  // Dossier illisible : ignore
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    // Archive de sources : src.zip range les paquets par module (java.base/java/lang/...),
+    // chaque dossier de premier niveau contenant un point est alors une racine
+    private void indexArchive(Path archive) {
+        try {
+            FileSystem zip = FileSystems.newFileSystem(archive, (ClassLoader) null);  // Garde ouvert : les Path en dependent
+            List<Path> roots = new ArrayList<>();
+            Path top = zip.getPath("/");
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(top)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry) && entry.getFileName().toString().contains(".")) {
+                        roots.add(entry);
+                    }
+                }
+            }
+            if (roots.isEmpty()) {
+                roots.add(top);
+            }
+            for (Path root : roots) {
+                ForkJoinPool.commonPool().invoke(new ArchiveScan(root, root));
+            }
+        } catch (IOException e) {
+            // Archive illisible : ignoree
+        }
+    }
+
+    private class ArchiveScan extends RecursiveAction {
+        private final Path root;
+        private final Path directory;
+
+        ArchiveScan(Path root, Path directory) {
+            this.root = root;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            List<ArchiveScan> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry)) {
+                        subtasks.add(new ArchiveScan(root, entry));
+                    } else if (isJavaFile(entry)) {
+                        add(root, entry, true);
+                    }
+                }
+            } catch (IOException e) {
+                return;
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    private void add(Path root, Path file, boolean fromArchive) {
+        String sourcePath = relativeName(root, file);
+        if (fromArchive) {
+            if (bySourcePath.putIfAbsent(sourcePath, file) == null) {
+                byFile.put(file, sourcePath);
+            }
+        } else {
+            Path previous = bySourcePath.put(sourcePath, file);
+            if (previous != null) {
+                byFile.remove(previous);
+            }
+            byFile.put(file, sourcePath);
+        }
+    }
+
+    private void remove(Path file) {
+        String sourcePath = byFile.remove(file);
+        if (sourcePath != null) {
+            bySourcePath.remove(sourcePath, file);
+        }
+    }
+
+    // Chemin relatif avec des '/', quel que soit le systeme de fichiers
+    private static String relativeName(Path root, Path file) {
+        Path relative = root.relativize(file);
+        StringBuilder sb = new StringBuilder();
+        for (Path part : relative) {
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(part);
+        }
+        return sb.toString();
+    }
+
+    private static boolean isJavaFile(Path file) {
+        return file.getFileName() != null && file.getFileName().toString().endsWith(".java");
+    }
+
+    private static boolean isArchive(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".jar") || name.endsWith(".zip");
+    }
+
+    private void watch(Path directory, Path root) {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            WatchKey key = directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watched.put(key, new Path[] {directory, root});
+        } catch (IOException e) {
+            // Dossier non surveille : l'index reste celui du demarrage
+        }
+    }
+
+    // Mise a jour incrementale : seul le dossier concerne est touche
+    // (une modification de contenu est vue par le SourceCache via la date du fichier)
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path[] place = watched.get(key);
+            if (place != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        ForkJoinPool.commonPool().invoke(new DirectoryScan(place[1], place[0], new ArrayList<>()));
+                        continue;
+                    }
+                    Path entry = place[0].resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        if (Files.isDirectory(entry)) {
+                            ForkJoinPool.commonPool().invoke(new DirectoryScan(place[1], entry, new ArrayList<>()));
+                        } else if (isJavaFile(entry)) {
+                            add(place[1], entry, false);
+                        }
+                    } else {
+                        removeUnder(entry);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                watched.remove(key);
+            }
+        }
+    }
+
+    // Fichier ou dossier supprime : retire tout ce qui etait dessous
+    private void removeUnder(Path deleted) {
+        for (Path file : new ArrayList<>(byFile.keySet())) {
+            if (file.getFileSystem() == deleted.getFileSystem() && file.startsWith(deleted)) {
+                remove(file);
+            }
+        }
+    }
+
+    // Racines par defaut : le dossier des sources du projet, -Ddebugger.source.path
+    // (liste separee par File.pathSeparator) et le src.zip du JDK s'il est installe
+    public static List<Path> defaultRoots(String projectSources) {
+        List<Path> roots = new ArrayList<>();
+        roots.add(Paths.get(projectSources));
+        String extra = System.getProperty("debugger.source.path");
+        if (extra != null) {
+            for (String part : extra.split(File.pathSeparator)) {
+                if (!part.isEmpty()) {
+                    roots.add(Paths.get(part));
+                }
+            }
+        }
+        roots.add(Paths.get(System.getProperty("java.home"), "lib", "src.zip"));
+        return roots;
+    }
+}
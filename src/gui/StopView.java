@@ -0,0 +1,49 @@
+package gui;
+
+import dbg.StackRow;
+import dbg.StopState;
+
+import javax.swing.tree.MutableTreeNode;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+// Ce que la fenetre affiche pour un arret (ou une frame selectionnee), construit hors de l'EDT
+// Toutes les lectures JDI sont deja faites : l'EDT ne fait que recopier ces valeurs dans les panneaux
+public class StopView {
+
+    final StopState state;                  // Arret affiche (vue ignoree si le thread est reparti)
+    final List<StackRow> stackRows;         // Premieres lignes de la pile, null quand seule la frame change
+    final int frameCount;                   // Profondeur de la pile
+    final int frameIndex;
+    final String location;                  // "Classe.methode:ligne"
+    final Path sourcePath;                  // null si le fichier source n'est pas trouve
+    final SourceFile source;                // Fichier deja charge (null si absent ou illisible)
+    final String sourceWarning;             // Message a afficher (source absente...), null sinon
+    final int line;
+    final List<MutableTreeNode> variables;  // Premier niveau de l'inspector
+
+    StopView(StopState state, List<StackRow> stackRows, int frameCount, int frameIndex, String location,
+             Path sourcePath, SourceFile source, String sourceWarning, int line, List<MutableTreeNode> variables) {
+        this.state = state;
+        this.stackRows = stackRows != null ? Collections.unmodifiableList(stackRows) : null;
+        this.frameCount = frameCount;
+        this.frameIndex = frameIndex;
+        this.location = location;
+        this.sourcePath = sourcePath;
+        this.source = source;
+        this.sourceWarning = sourceWarning;
+        this.line = line;
+        this.variables = Collections.unmodifiableList(variables);
+    }
+
+    // Une vue remplacee avant d'etre affichee : si elle portait la pile du meme arret,
+    // la nouvelle la reprend (sinon la liste de la pile ne serait jamais remplie)
+    static StopView merge(StopView previous, StopView next) {
+        if (next.stackRows == null && previous.stackRows != null && previous.state == next.state) {
+            return new StopView(next.state, previous.stackRows, next.frameCount, next.frameIndex, next.location,
+                    next.sourcePath, next.source, next.sourceWarning, next.line, next.variables);
+        }
+        return next;
+    }
+}